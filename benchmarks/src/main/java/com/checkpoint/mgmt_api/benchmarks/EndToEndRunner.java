@@ -0,0 +1,206 @@
+package com.checkpoint.mgmt_api.benchmarks;
+
+import com.checkpoint.mgmt_api.benchmarks.mock.MockManagementServer;
+import com.checkpoint.mgmt_api.benchmarks.mock.MockServerSettings;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class measures whole runs of the tool against a {@link MockManagementServer}.
+ * The tool runs in a process of its own (it exits when it's done), with the class path of the runner.
+ *
+ * A flag of the tool can be given several values with --vary, every combination of the values is measured
+ * (e.g. --vary --max-concurrent-calls=5,10,20 --vary --query-limit=50,200), which helps to tune the concurrency and the
+ * page sizes against a server of a given latency.
+ */
+public class EndToEndRunner
+{
+    private static final String USAGE =
+            "End to end benchmark of the tool against the mock management server\n" +
+            "\t[--runs count] measured runs of every combination (default 3)\n" +
+            "\t[--warmup-runs count] runs of every combination which aren't measured (default 1)\n" +
+            "\t[--vary flag=value1,value2,...] values of a flag of the tool, can be given several times\n" +
+            "\t[--keep-output] keep the results of the runs\n" +
+            "\t[-- tool flags...] flags which are passed to every run of the tool\n" +
+            MockServerSettings.USAGE;
+
+    public static void main(String[] args) throws Exception
+    {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (arguments.contains("-h")) {
+            System.out.println(USAGE);
+            return;
+        }
+        List<String> toolFlags = new ArrayList<>();
+        int separator = arguments.indexOf("--");
+        if (separator != -1) {
+            toolFlags.addAll(arguments.subList(separator + 1, arguments.size()));
+            arguments = new ArrayList<>(arguments.subList(0, separator));
+        }
+        MockServerSettings settings = MockServerSettings.parse(arguments);
+
+        int runs = 3;
+        int warmupRuns = 1;
+        boolean keepOutput = false;
+        //The flags which are varied and their values, in the order they were given
+        Map<String, List<String>> variations = new LinkedHashMap<>();
+        for (Iterator<String> iterator = arguments.iterator(); iterator.hasNext(); ) {
+            String argument = iterator.next();
+            switch (argument) {
+                case "--runs":
+                    runs = Integer.parseInt(iterator.next());
+                    break;
+                case "--warmup-runs":
+                    warmupRuns = Integer.parseInt(iterator.next());
+                    break;
+                case "--keep-output":
+                    keepOutput = true;
+                    break;
+                case "--vary":
+                    String variation = iterator.next();
+                    int equals = variation.indexOf('=');
+                    if (equals == -1) {
+                        throw new IllegalArgumentException("--vary expects flag=value1,value2,... (" + variation + ")");
+                    }
+                    variations.put(variation.substring(0, equals),
+                                   Arrays.asList(variation.substring(equals + 1).split(",")));
+                    break;
+                default:
+                    System.out.println("Unknown argument " + argument + "\n" + USAGE);
+                    System.exit(1);
+            }
+        }
+
+        MockManagementServer server = new MockManagementServer(settings);
+        server.start();
+        System.out.println("Mock management server: " + settings + ", port " + server.getPort());
+
+        String outputFolder = SyntheticData.createTempFolder("show_package_e2e");
+        try {
+            List<String> results = new ArrayList<>();
+            for (List<String> combination : combinations(variations)) {
+                List<String> flags = new ArrayList<>(toolFlags);
+                flags.addAll(combination);
+
+                long[] times = new long[runs];
+                long requests = 0;
+                long errors = 0;
+                for (int run = -warmupRuns; run < runs; run++) {
+                    server.resetStatistics();
+                    String runFolder = outputFolder + "run" + results.size() + "_" + (run + warmupRuns);
+                    long start = System.nanoTime();
+                    int exitCode = runTool(server.getPort(), runFolder, flags);
+                    long time = System.nanoTime() - start;
+                    if (exitCode != 0) {
+                        System.out.println("The tool failed (exit code " + exitCode + ") with " + flags
+                                                   + ", see the log in " + runFolder);
+                    }
+                    if (run >= 0) {
+                        times[run] = time;
+                        requests  += server.getRequests();
+                        errors    += server.getInjectedErrors();
+                    }
+                    if (!keepOutput) {
+                        SyntheticData.deleteFolder(runFolder);
+                    }
+                }
+                if (runs == 0) {
+                    continue;
+                }
+                Arrays.sort(times);
+                long total = 0;
+                for (long time : times) {
+                    total += time;
+                }
+                String result = String.format("%-60s mean %8.2fs  min %8.2fs  max %8.2fs  %8d requests  %6d errors",
+                                              combination.isEmpty() ? "(default)" : join(combination),
+                                              seconds(total / runs), seconds(times[0]), seconds(times[runs - 1]),
+                                              requests / runs, errors / runs);
+                System.out.println(result);
+                results.add(result);
+            }
+
+            System.out.println();
+            System.out.println("Tool flags: " + join(toolFlags) + ", " + runs + " run(s) per combination");
+            for (String result : results) {
+                System.out.println(result);
+            }
+        }
+        finally {
+            server.stop();
+            if (!keepOutput) {
+                SyntheticData.deleteFolder(outputFolder);
+            }
+            else {
+                System.out.println("The results are kept in " + outputFolder);
+            }
+        }
+    }
+
+    /**
+     * This function runs the tool against the mock server and waits for it to exit
+     *
+     * @return the exit code of the tool
+     */
+    private static int runTool(int port, String outputFolder, List<String> flags) throws Exception
+    {
+        new File(outputFolder).mkdirs();
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("com.checkpoint.mgmt_api.examples.ShowPackageTool");
+        command.addAll(Arrays.asList("-m", "localhost", "-n", String.valueOf(port), "-u", "admin", "-p", "admin",
+                                     "-b", "-o", outputFolder));
+        command.addAll(flags);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(new File(outputFolder, "tool_output.txt")).start();
+        if (!process.waitFor(3, TimeUnit.HOURS)) {
+            process.destroyForcibly();
+            return -1;
+        }
+        return process.exitValue();
+    }
+
+    /**
+     * This function returns every combination of the values of the varied flags, as the flags of the tool
+     */
+    private static List<List<String>> combinations(Map<String, List<String>> variations)
+    {
+        List<List<String>> combinations = new ArrayList<>();
+        combinations.add(new ArrayList<String>());
+        for (Map.Entry<String, List<String>> variation : variations.entrySet()) {
+            List<List<String>> extended = new ArrayList<>();
+            for (List<String> combination : combinations) {
+                for (String value : variation.getValue()) {
+                    List<String> flags = new ArrayList<>(combination);
+                    flags.add(variation.getKey());
+                    flags.add(value);
+                    extended.add(flags);
+                }
+            }
+            combinations = extended;
+        }
+        return combinations;
+    }
+
+    private static double seconds(long nanos)
+    {
+        return nanos / 1e9;
+    }
+
+    private static String join(List<String> values)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (String value : values) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
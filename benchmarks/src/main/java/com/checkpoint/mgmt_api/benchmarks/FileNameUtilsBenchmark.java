@@ -0,0 +1,55 @@
+package com.checkpoint.mgmt_api.benchmarks;
+
+import com.checkpoint.mgmt_api.utils.FileNameUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the sanitizing of the file names of the pages.
+ * The names are within the length limit, a longer name is also logged which would dominate the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileNameUtilsBenchmark
+{
+    @Param({"1000", "50000", "500000"})
+    private int entries;
+
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void createNames()
+    {
+        names = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            switch (i % 4) {
+                case 0:
+                    names[i] = "Network " + i + "-SMC User";
+                    break;
+                case 1:
+                    names[i] = "Corporate Policy " + i + "_objects";
+                    break;
+                case 2:
+                    names[i] = "Branch/Office: " + i + " <DMZ> | Standard Threat Prevention-Domain " + i;
+                    break;
+                default:
+                    names[i] = "__inline layer " + i + "  of  the  data center layer..";
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public void sanitizeFileName(Blackhole blackhole)
+    {
+        for (String name : names) {
+            blackhole.consume(FileNameUtils.sanitizeFileName(name));
+        }
+    }
+}
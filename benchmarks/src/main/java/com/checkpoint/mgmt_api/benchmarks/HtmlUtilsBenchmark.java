@@ -0,0 +1,73 @@
+package com.checkpoint.mgmt_api.benchmarks;
+
+import com.checkpoint.mgmt_api.objects.Layer;
+import com.checkpoint.mgmt_api.utils.HtmlUtils;
+import com.checkpoint.mgmt_api.utils.UidDictionary;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the writing of the html and json files of the objects and of a rulebase
+ * (createHtmlFile and setDataInHtmlFile of {@link HtmlUtils}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HtmlUtilsBenchmark
+{
+    @Param({"1000", "50000", "500000"})
+    private int entries;
+
+    private String folderPath;
+    private String resultFolderPath;
+    private String objectsFile;
+    private String rulebaseFile;
+    private UidDictionary uidToName;
+
+    @Setup(Level.Trial)
+    public void createFiles() throws Exception
+    {
+        SyntheticData data = new SyntheticData();
+        List<JSONObject> objects = data.objects(entries);
+        List<JSONObject> rulebase = data.accessRulebase(entries, objects);
+        uidToName = SyntheticData.uidToName(objects);
+
+        folderPath       = SyntheticData.createTempFolder("show_package_benchmark");
+        resultFolderPath = folderPath + "result" + File.separator;
+        new File(resultFolderPath).mkdir();
+        objectsFile  = folderPath + "objects.json";
+        rulebaseFile = folderPath + "rulebase.json";
+        SyntheticData.writeArray(new File(objectsFile), objects);
+        SyntheticData.writeArray(new File(rulebaseFile), rulebase);
+
+        HtmlUtils.INSTANCE.readTemplatesFromClassPath();
+        HtmlUtils.INSTANCE.setResultFolderPath(resultFolderPath);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles()
+    {
+        SyntheticData.deleteFolder(folderPath);
+    }
+
+    @Benchmark
+    public void writeObjectsHTML() throws Exception
+    {
+        HtmlUtils.INSTANCE.writeObjectsHTML("benchmark", objectsFile);
+    }
+
+    @Benchmark
+    public void writeRulebaseHTML() throws Exception
+    {
+        HtmlUtils.INSTANCE.writeRulebaseHTML("Network", "benchmark", "SMC User", "1.9", "access", rulebaseFile,
+                                             uidToName, Collections.<Layer>emptySet(), false, false);
+    }
+}
@@ -0,0 +1,203 @@
+package com.checkpoint.mgmt_api.benchmarks;
+
+import com.checkpoint.mgmt_api.utils.JsonArrayWriter;
+import com.checkpoint.mgmt_api.utils.UidDictionary;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * This class generates the synthetic objects and rulebases which the benchmarks run against.
+ * The data is generated from a fixed seed, so every run of a benchmark works on the same data.
+ */
+public class SyntheticData
+{
+    private static final long SEED = 20161018L;
+    private static final String[] SERVICES = {"http", "https", "ssh", "dns", "smtp", "ftp", "ldap", "snmp"};
+    private static final String[] ACTIONS  = {"Accept", "Drop", "Reject", "Inline Layer"};
+    //A section is added every that many rules
+    private static final int RULES_PER_SECTION = 50;
+
+    private final Random random = new Random(SEED);
+
+    /**
+     * This function generates objects as they're returned by the management server: hosts, networks and groups whose
+     * members are earlier objects.
+     *
+     * @param count the number of objects
+     * @return the objects
+     */
+    public List<JSONObject> objects(int count)
+    {
+        List<JSONObject> objects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            JSONObject object = new JSONObject();
+            object.put("uid", uid());
+            object.put("domain", domain());
+
+            switch (i % 10) {
+                case 8:
+                    object.put("type", "network");
+                    object.put("name", "net_" + i);
+                    object.put("subnet4", "10." + (i >>> 8 & 0xff) + "." + (i & 0xff) + ".0");
+                    object.put("mask-length4", 24);
+                    break;
+                case 9:
+                    object.put("type", "group");
+                    object.put("name", "group_" + i);
+                    JSONArray members = new JSONArray();
+                    for (int member = 0; member < 5 && i > 0; member++) {
+                        members.add(objects.get(random.nextInt(i)).get("uid"));
+                    }
+                    object.put("members", members);
+                    break;
+                default:
+                    object.put("type", "host");
+                    object.put("name", "host_" + i);
+                    object.put("ipv4-address", "192.168." + (i >>> 8 & 0xff) + "." + (i & 0xff));
+                    break;
+            }
+            object.put("comments", "synthetic object " + i);
+            object.put("color", "black");
+            objects.add(object);
+        }
+        return objects;
+    }
+
+    /**
+     * This function generates an access rulebase which references given objects, with a section every
+     * {@value #RULES_PER_SECTION} rules.
+     *
+     * @param count the number of rows (rules and sections)
+     * @param objects the objects which the rules reference
+     * @return the rows of the rulebase
+     */
+    public List<JSONObject> accessRulebase(int count, List<JSONObject> objects)
+    {
+        List<JSONObject> rows = new ArrayList<>(count);
+        int ruleNumber = 1;
+        for (int i = 0; i < count; i++) {
+            JSONObject row = new JSONObject();
+            row.put("uid", uid());
+            if (i % (RULES_PER_SECTION + 1) == 0) {
+                row.put("type", "access-section");
+                row.put("name", "Section " + (i / (RULES_PER_SECTION + 1) + 1));
+                row.put("from", ruleNumber);
+                row.put("to", ruleNumber + RULES_PER_SECTION - 1);
+            }
+            else {
+                row.put("type", "access-rule");
+                row.put("name", "rule " + ruleNumber);
+                row.put("rule-number", ruleNumber++);
+                row.put("enabled", random.nextInt(20) != 0);
+                row.put("source", objectUids(objects, 3));
+                row.put("destination", objectUids(objects, 3));
+                JSONArray services = new JSONArray();
+                services.add(SERVICES[random.nextInt(SERVICES.length)]);
+                row.put("service", services);
+                row.put("action", ACTIONS[random.nextInt(ACTIONS.length)]);
+                row.put("track", "Log");
+                row.put("comments", "");
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * This function builds the uid to name dictionary of given objects
+     *
+     * @param objects the objects
+     * @return the dictionary
+     */
+    public static UidDictionary uidToName(List<JSONObject> objects)
+    {
+        UidDictionary uidToName = new UidDictionary();
+        for (JSONObject object : objects) {
+            uidToName.put(object.get("uid").toString(), object.get("name").toString());
+        }
+        return uidToName;
+    }
+
+    /**
+     * This function writes given json objects into a file as a json array, as the tool writes its temp files
+     *
+     * @param file the file
+     * @param objects the objects
+     * @throws IOException in case the file couldn't be written
+     */
+    public static void writeArray(File file, List<JSONObject> objects) throws IOException
+    {
+        try (JsonArrayWriter writer = new JsonArrayWriter(file.getPath())) {
+            for (JSONObject object : objects) {
+                writer.write(object);
+            }
+            writer.endArray();
+        }
+    }
+
+    /**
+     * This function creates an empty temp folder, the path ends with the file separator
+     *
+     * @param prefix the prefix of the folder name
+     * @return the path of the folder
+     * @throws IOException in case the folder couldn't be created
+     */
+    public static String createTempFolder(String prefix) throws IOException
+    {
+        File folder = Files.createTempDirectory(prefix).toFile();
+        return folder.getPath() + File.separator;
+    }
+
+    /**
+     * This function deletes a given folder and its files
+     *
+     * @param folderPath the folder
+     */
+    public static void deleteFolder(String folderPath)
+    {
+        File[] children = new File(folderPath).listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    deleteFolder(child.getPath());
+                }
+                else {
+                    child.delete();
+                }
+            }
+        }
+        new File(folderPath).delete();
+    }
+
+    private JSONArray objectUids(List<JSONObject> objects, int maxCount)
+    {
+        JSONArray uids = new JSONArray();
+        int count = 1 + random.nextInt(maxCount);
+        for (int i = 0; i < count; i++) {
+            uids.add(objects.get(random.nextInt(objects.size())).get("uid"));
+        }
+        return uids;
+    }
+
+    private JSONObject domain()
+    {
+        JSONObject domain = new JSONObject();
+        domain.put("uid", "41e821a0-3720-11e3-aa6e-0800200c9fde");
+        domain.put("name", "SMC User");
+        domain.put("domain-type", "domain");
+        return domain;
+    }
+
+    private String uid()
+    {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+}
@@ -0,0 +1,66 @@
+package com.checkpoint.mgmt_api.benchmarks;
+
+import com.checkpoint.mgmt_api.utils.TarGZUtils;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the packing of a result folder into the tar.gz file.
+ * The folder holds the json files of the synthetic objects and rulebase, split into files of
+ * {@value #ENTRIES_PER_FILE} entries like the pages of several layers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TarGZUtilsBenchmark
+{
+    private static final int ENTRIES_PER_FILE = 10000;
+
+    @Param({"1000", "50000", "500000"})
+    private int entries;
+
+    @Param({"1", "4"})
+    private int compressionThreads;
+
+    private String folderPath;
+    private String resultFolderPath;
+    private String tarGzPath;
+
+    @Setup(Level.Trial)
+    public void createFiles() throws Exception
+    {
+        SyntheticData data = new SyntheticData();
+        List<JSONObject> objects = data.objects(entries);
+        List<JSONObject> rulebase = data.accessRulebase(entries, objects);
+
+        folderPath       = SyntheticData.createTempFolder("show_package_benchmark");
+        resultFolderPath = folderPath + "result" + File.separator;
+        tarGzPath        = folderPath + "result.tar.gz";
+        new File(resultFolderPath).mkdir();
+        for (int start = 0; start < entries; start += ENTRIES_PER_FILE) {
+            int end = Math.min(start + ENTRIES_PER_FILE, entries);
+            SyntheticData.writeArray(new File(resultFolderPath, "objects_" + start + ".json"), objects.subList(start, end));
+            SyntheticData.writeArray(new File(resultFolderPath, "layer_" + start + ".json"), rulebase.subList(start, end));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles()
+    {
+        SyntheticData.deleteFolder(folderPath);
+    }
+
+    @Benchmark
+    public long createTarGZ() throws Exception
+    {
+        TarGZUtils.createTarGZ(resultFolderPath, tarGzPath, false, 6, compressionThreads);
+        return new File(tarGzPath).length();
+    }
+}
@@ -0,0 +1,33 @@
+package com.checkpoint.mgmt_api.benchmarks.mock;
+
+import org.json.simple.JSONObject;
+
+/**
+ * This class is an error response of the mock management server, with the status and the body of a management
+ * server error ({"code" : ..., "message" : ...})
+ */
+public class MockApiError extends Exception
+{
+    private final int status;
+    private final String code;
+
+    public MockApiError(int status, String code, String message)
+    {
+        super(message);
+        this.status = status;
+        this.code   = code;
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public JSONObject toJson()
+    {
+        JSONObject error = new JSONObject();
+        error.put("code", code);
+        error.put("message", getMessage());
+        return error;
+    }
+}
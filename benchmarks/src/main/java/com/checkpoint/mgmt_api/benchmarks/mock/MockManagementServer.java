@@ -0,0 +1,319 @@
+package com.checkpoint.mgmt_api.benchmarks.mock;
+
+import com.checkpoint.mgmt_api.utils.DaemonThreadFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a mock of the management API server, for measuring the tool without a real management server.
+ * It answers the commands which the tool runs (https://host:port/web_api/command) from a {@link SyntheticPolicy},
+ * with a configurable latency, error rate and number of requests which are handled at the same time.
+ *
+ * The server uses a self-signed certificate, so the tool has to run with -b (skip the certificate verification).
+ * The tool logs in as root when it connects to a local ip, connect it with '-m localhost -u user -p password'.
+ */
+public class MockManagementServer
+{
+    private static final String WEB_API = "/web_api/";
+    private static final String SESSION_HEADER = "X-chkp-sid";
+    private static final String KEYSTORE_PASSWORD = "mock-server";
+
+    //The commands which fail according to the error rate, the others are needed for the run to start at all
+    private static final Set<String> DATA_COMMANDS = new HashSet<>(Arrays.asList(
+            "show-access-rulebase", "show-nat-rulebase", "show-threat-rulebase", "show-threat-rule-exception-rulebase",
+            "show-objects", "show-access-layer"));
+
+    private final MockServerSettings settings;
+    private final SyntheticPolicy policy;
+    private final Random random;
+    private final Set<String> sessions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    //The number of requests, failed requests and response bytes of every command
+    private final ConcurrentHashMap<String, AtomicLong[]> statistics = new ConcurrentHashMap<>();
+
+    private HttpsServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param settings the settings of the server and its policy
+     */
+    public MockManagementServer(MockServerSettings settings)
+    {
+        this.settings = settings;
+        this.policy   = new SyntheticPolicy(settings);
+        this.random   = new Random(settings.seed);
+    }
+
+    /**
+     * This function starts the server on the port of the settings (any free port if it's 0)
+     *
+     * @throws Exception in case the server couldn't be started
+     */
+    public void start() throws Exception
+    {
+        server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.port), 128);
+        server.setHttpsConfigurator(new HttpsConfigurator(createSslContext()));
+        server.createContext(WEB_API, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                handleRequest(exchange);
+            }
+        });
+        executor = Executors.newFixedThreadPool(settings.threads, new DaemonThreadFactory("mock-server-"));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return the port which the server listens on
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * This function clears the statistics, e.g. between the runs of a benchmark
+     */
+    public void resetStatistics()
+    {
+        statistics.clear();
+    }
+
+    /**
+     * @return the number of requests which were handled since the statistics were cleared
+     */
+    public long getRequests()
+    {
+        long requests = 0;
+        for (AtomicLong[] commandStatistics : statistics.values()) {
+            requests += commandStatistics[0].get();
+        }
+        return requests;
+    }
+
+    /**
+     * @return the number of requests which failed on purpose since the statistics were cleared
+     */
+    public long getInjectedErrors()
+    {
+        long errors = 0;
+        for (AtomicLong[] commandStatistics : statistics.values()) {
+            errors += commandStatistics[1].get();
+        }
+        return errors;
+    }
+
+    /**
+     * @return the requests, errors and response bytes of every command
+     */
+    public String statisticsToString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, AtomicLong[]> entry : new TreeMap<>(statistics).entrySet()) {
+            AtomicLong[] commandStatistics = entry.getValue();
+            builder.append(String.format("%-40s %8d requests %6d errors %12d bytes%n", entry.getKey(),
+                                         commandStatistics[0].get(), commandStatistics[1].get(),
+                                         commandStatistics[2].get()));
+        }
+        return builder.toString();
+    }
+
+    private void handleRequest(HttpExchange exchange) throws IOException
+    {
+        String path = exchange.getRequestURI().getPath();
+        String command = path.substring(path.lastIndexOf('/') + 1);
+        int status = 200;
+        JSONObject response;
+        boolean injectedError = false;
+        try {
+            JSONObject payload = readPayload(exchange);
+            delay();
+            String sid = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+            if (!"login".equals(command) && (sid == null || !sessions.contains(sid))) {
+                throw new MockApiError(401, "generic_err_wrong_session_id",
+                                       "Wrong session id [" + sid + "]. Session may be expired.");
+            }
+            if (DATA_COMMANDS.contains(command) && nextDouble() < settings.errorRate) {
+                injectedError = true;
+                throw new MockApiError(500, "generic_error", "Injected error of the mock server");
+            }
+            response = policy.run(command, payload);
+            if ("login".equals(command)) {
+                sessions.add(response.get("sid").toString());
+            }
+            else if ("logout".equals(command)) {
+                sessions.remove(sid);
+            }
+        }
+        catch (MockApiError e) {
+            status   = e.getStatus();
+            response = e.toJson();
+        }
+        catch (ParseException | RuntimeException e) {
+            status   = 400;
+            response = new MockApiError(400, "generic_err_invalid_syntax", String.valueOf(e.getMessage())).toJson();
+        }
+
+        byte[] body = response.toJSONString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        count(command, injectedError, body.length);
+    }
+
+    private JSONObject readPayload(HttpExchange exchange) throws IOException, ParseException
+    {
+        try (Reader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            Object payload = new JSONParser().parse(reader);
+            return payload instanceof JSONObject ? (JSONObject) payload : new JSONObject();
+        }
+        catch (ParseException e) {
+            //An empty body is an empty payload
+            if (e.getErrorType() == ParseException.ERROR_UNEXPECTED_TOKEN && e.getPosition() == 0) {
+                return new JSONObject();
+            }
+            throw e;
+        }
+    }
+
+    private void delay()
+    {
+        long latency = settings.latencyMs;
+        if (settings.latencyJitterMs > 0) {
+            synchronized (random) {
+                latency += random.nextInt(settings.latencyJitterMs + 1);
+            }
+        }
+        if (latency > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latency);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private double nextDouble()
+    {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private void count(String command, boolean injectedError, long bytes)
+    {
+        AtomicLong[] commandStatistics = statistics.get(command);
+        if (commandStatistics == null) {
+            AtomicLong[] newStatistics = {new AtomicLong(), new AtomicLong(), new AtomicLong()};
+            commandStatistics = statistics.putIfAbsent(command, newStatistics);
+            if (commandStatistics == null) {
+                commandStatistics = newStatistics;
+            }
+        }
+        commandStatistics[0].incrementAndGet();
+        if (injectedError) {
+            commandStatistics[1].incrementAndGet();
+        }
+        commandStatistics[2].addAndGet(bytes);
+    }
+
+    /**
+     * This function creates the TLS context of the server with a new self-signed certificate.
+     * The certificate is created by the keytool of the running JVM, which keeps the server free of dependencies.
+     */
+    private static SSLContext createSslContext() throws Exception
+    {
+        File keystoreFile = File.createTempFile("mock-server", ".jks");
+        keystoreFile.delete();
+        try {
+            String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+            Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "mock-server", "-keyalg", "RSA",
+                                                 "-keysize", "2048", "-validity", "365", "-dname", "CN=localhost",
+                                                 "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-storetype", "JKS",
+                                                 "-keystore", keystoreFile.getPath(), "-storepass", KEYSTORE_PASSWORD,
+                                                 "-keypass", KEYSTORE_PASSWORD, "-noprompt")
+                    .redirectErrorStream(true).start();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (InputStream in = process.getInputStream()) {
+                byte[] buffer = new byte[4096];
+                int length;
+                while ((length = in.read(buffer)) != -1) {
+                    output.write(buffer, 0, length);
+                }
+            }
+            if (process.waitFor() != 0) {
+                throw new IOException("Failed to create the certificate of the server: " + output.toString("UTF-8"));
+            }
+
+            KeyStore keyStore = KeyStore.getInstance("JKS");
+            try (InputStream in = new FileInputStream(keystoreFile)) {
+                keyStore.load(in, KEYSTORE_PASSWORD.toCharArray());
+            }
+            KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(keyStore, KEYSTORE_PASSWORD.toCharArray());
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+            return sslContext;
+        }
+        finally {
+            keystoreFile.delete();
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (arguments.contains("-h")) {
+            System.out.println("Mock management API server\n" + MockServerSettings.USAGE);
+            return;
+        }
+        MockServerSettings settings = MockServerSettings.parse(arguments);
+        if (!arguments.isEmpty()) {
+            System.out.println("Unknown arguments " + arguments + "\n" + MockServerSettings.USAGE);
+            System.exit(1);
+        }
+
+        final MockManagementServer server = new MockManagementServer(settings);
+        server.start();
+        System.out.println("Mock management server (" + settings + ") is listening on https://localhost:"
+                                   + server.getPort() + WEB_API);
+        System.out.println("Run the tool with: -m localhost -n " + server.getPort() + " -u admin -p admin -b");
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run()
+            {
+                System.out.print(server.statisticsToString());
+            }
+        });
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,113 @@
+package com.checkpoint.mgmt_api.benchmarks.mock;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class holds the settings of the mock management server: the size of the synthetic policy and the behavior of
+ * the server (latency, errors and capacity).
+ */
+public class MockServerSettings
+{
+    //The synthetic policy
+    public int packages          = 2;
+    public int accessRules       = 1000;
+    public int inlineLayers      = 2;
+    public int inlineLayerRules  = 50;
+    public int natRules          = 100;
+    public int threatRules       = 100;
+    public int exceptionsPerRule = 2;
+    public int objects           = 5000;
+    public String apiVersion     = "1.9";
+
+    //The server
+    public int port              = 0;
+    public int threads           = 16;
+    public int latencyMs         = 0;
+    public int latencyJitterMs   = 0;
+    public double errorRate      = 0;
+    public long seed             = 1;
+
+    /**
+     * This function reads the settings out of given command line arguments ("--name value"), the arguments which
+     * aren't settings of the server are left in the list.
+     *
+     * @param args the arguments
+     * @return the settings
+     */
+    public static MockServerSettings parse(List<String> args)
+    {
+        MockServerSettings settings = new MockServerSettings();
+        Iterator<String> iterator = args.iterator();
+        while (iterator.hasNext()) {
+            String name = iterator.next();
+            if (!settings.isSetting(name)) {
+                continue;
+            }
+            iterator.remove();
+            if (!iterator.hasNext()) {
+                throw new IllegalArgumentException("Missing value of " + name);
+            }
+            String value = iterator.next();
+            iterator.remove();
+            settings.set(name, value);
+        }
+        return settings;
+    }
+
+    private boolean isSetting(String name)
+    {
+        return USAGE.contains("[" + name + " ");
+    }
+
+    private void set(String name, String value)
+    {
+        switch (name) {
+            case "--packages":            packages = Integer.parseInt(value); break;
+            case "--access-rules":        accessRules = Integer.parseInt(value); break;
+            case "--inline-layers":       inlineLayers = Integer.parseInt(value); break;
+            case "--inline-layer-rules":  inlineLayerRules = Integer.parseInt(value); break;
+            case "--nat-rules":           natRules = Integer.parseInt(value); break;
+            case "--threat-rules":        threatRules = Integer.parseInt(value); break;
+            case "--exceptions-per-rule": exceptionsPerRule = Integer.parseInt(value); break;
+            case "--objects":             objects = Integer.parseInt(value); break;
+            case "--api-version":         apiVersion = value; break;
+            case "--port":                port = Integer.parseInt(value); break;
+            case "--threads":             threads = Integer.parseInt(value); break;
+            case "--latency-ms":          latencyMs = Integer.parseInt(value); break;
+            case "--latency-jitter-ms":   latencyJitterMs = Integer.parseInt(value); break;
+            case "--error-rate":          errorRate = Double.parseDouble(value); break;
+            case "--seed":                seed = Long.parseLong(value); break;
+            default:
+                throw new IllegalArgumentException("Unknown setting " + name);
+        }
+    }
+
+    public static final String USAGE =
+            "Policy:\n" +
+            "\t[--packages count] number of packages, each one installed on a gateway (default 2)\n" +
+            "\t[--access-rules count] rules of the access layer of every package (default 1000)\n" +
+            "\t[--inline-layers count] inline layers of the access layer of every package (default 2)\n" +
+            "\t[--inline-layer-rules count] rules of every inline layer (default 50)\n" +
+            "\t[--nat-rules count] NAT rules of every package (default 100)\n" +
+            "\t[--threat-rules count] rules of the threat layer of every package (default 100)\n" +
+            "\t[--exceptions-per-rule count] exceptions of every fifth threat rule (default 2)\n" +
+            "\t[--objects count] objects which the rules reference (default 5000)\n" +
+            "\t[--api-version version] the api-server-version of the login response (default 1.9)\n" +
+            "Server:\n" +
+            "\t[--port port] the https port, 0 for any free port (default 0)\n" +
+            "\t[--threads count] requests which are handled at the same time (default 16)\n" +
+            "\t[--latency-ms ms] latency which is added to every request (default 0)\n" +
+            "\t[--latency-jitter-ms ms] random latency which is added on top of it (default 0)\n" +
+            "\t[--error-rate rate] share of the data requests which fail with an error, 0 to 1 (default 0)\n" +
+            "\t[--seed seed] seed of the latency and the errors (default 1)\n";
+
+    @Override
+    public String toString()
+    {
+        return "packages=" + packages + ", access-rules=" + accessRules + ", inline-layers=" + inlineLayers
+                + "x" + inlineLayerRules + ", nat-rules=" + natRules + ", threat-rules=" + threatRules
+                + ", objects=" + objects + ", threads=" + threads + ", latency=" + latencyMs + "+" + latencyJitterMs
+                + "ms, error-rate=" + errorRate;
+    }
+}
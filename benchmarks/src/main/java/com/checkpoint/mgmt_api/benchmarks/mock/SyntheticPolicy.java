@@ -0,0 +1,638 @@
+package com.checkpoint.mgmt_api.benchmarks.mock;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.util.*;
+
+/**
+ * This class answers the management API commands which the tool runs, from a synthetic policy.
+ * Nothing is stored: every package, layer, rule and object is generated from its index, and its uid encodes its kind,
+ * its owner (the package) and its index, so an object which is requested by uid can be generated again.
+ *
+ * Every package has an access layer with inline layers, a NAT rulebase, a threat layer whose rules have exceptions
+ * and a gateway which the package is installed on. The rules reference the objects, and the groups reference other
+ * objects which the tool retrieves with 'show-objects'.
+ */
+public class SyntheticPolicy
+{
+    //The kinds of the uids
+    private static final int OBJECT          = 1;
+    private static final int ACCESS_RULE     = 2;
+    private static final int ACCESS_SECTION  = 3;
+    private static final int NAT_RULE        = 4;
+    private static final int THREAT_RULE     = 5;
+    private static final int THREAT_EXCEPTION = 6;
+    private static final int PACKAGE         = 7;
+    private static final int ACCESS_LAYER    = 8;
+    private static final int THREAT_LAYER    = 9;
+    private static final int INLINE_LAYER    = 10;
+    private static final int GATEWAY         = 11;
+    private static final int FIXED_OBJECT    = 12;
+    private static final int SESSION         = 13;
+
+    //The fixed objects which the rules reference
+    private static final String[][] FIXED_OBJECTS = {
+            {"Any", "CpmiAnyObject"}, {"Accept", "RulebaseAction"}, {"Drop", "RulebaseAction"},
+            {"Inner Layer", "RulebaseAction"}, {"Log", "Track"}, {"None", "Track"}, {"Policy Targets", "Global"},
+            {"Optimized", "threat-profile"}, {"http", "service-tcp"}, {"https", "service-tcp"}, {"ssh", "service-tcp"},
+            {"dns", "service-udp"}};
+    private static final int ANY = 0;
+    private static final int ACCEPT = 1;
+    private static final int DROP = 2;
+    private static final int INNER_LAYER = 3;
+    private static final int LOG = 4;
+    private static final int POLICY_TARGETS = 6;
+    private static final int OPTIMIZED = 7;
+    private static final int FIRST_SERVICE = 8;
+
+    private static final int RULES_PER_SECTION = 50;
+    private static final int GROUP_MEMBERS = 5;
+
+    private final MockServerSettings settings;
+
+    /**
+     * @param settings the size of the policy
+     */
+    public SyntheticPolicy(MockServerSettings settings)
+    {
+        this.settings = settings;
+    }
+
+    /**
+     * This function runs a given command
+     *
+     * @param command the command
+     * @param payload the payload of the command
+     * @return the response
+     * @throws MockApiError in case the command fails, like it would fail on a management server
+     */
+    public JSONObject run(String command, JSONObject payload) throws MockApiError
+    {
+        switch (command) {
+            case "login":
+                return login();
+            case "logout":
+                return message("OK");
+            case "show-last-published-session":
+            case "show-session":
+            case "switch-session":
+                return session();
+            case "show-changes":
+                return changes();
+            case "show-packages":
+                return showPackages(payload);
+            case "show-package":
+                return showPackage(payload);
+            case "show-gateways-and-servers":
+                return showGatewaysAndServers(payload);
+            case "show-vpn-communities-star":
+            case "show-vpn-communities-meshed":
+                return page("objects", new JSONArray(), 0, 0);
+            case "show-access-layer":
+                return showAccessLayer(payload);
+            case "show-access-rulebase":
+                return showAccessRulebase(payload);
+            case "show-nat-rulebase":
+                return showNatRulebase(payload);
+            case "show-threat-rulebase":
+                return showThreatRulebase(payload);
+            case "show-threat-rule-exception-rulebase":
+                return showThreatRuleExceptionRulebase(payload);
+            case "show-objects":
+                return showObjects(payload);
+            default:
+                throw new MockApiError(404, "generic_err_command_not_found", "Unknown command \"" + command + "\"");
+        }
+    }
+
+    private JSONObject login()
+    {
+        JSONObject response = new JSONObject();
+        response.put("sid", UUID.randomUUID().toString());
+        response.put("session-timeout", 600);
+        response.put("api-server-version", settings.apiVersion);
+        response.put("uid", uid(SESSION, 0, 1));
+        return response;
+    }
+
+    private JSONObject session()
+    {
+        JSONObject publishTime = new JSONObject();
+        publishTime.put("posix", 1500000000000L);
+        publishTime.put("iso-8601", "2017-07-14T02:40+0000");
+
+        JSONObject response = new JSONObject();
+        response.put("uid", uid(SESSION, 0, 0));
+        response.put("name", "synthetic policy");
+        response.put("type", "session");
+        response.put("state", "published");
+        response.put("publish-time", publishTime);
+        return response;
+    }
+
+    private JSONObject changes()
+    {
+        //The policy never changes
+        JSONObject taskDetails = new JSONObject();
+        taskDetails.put("changes", new JSONArray());
+        JSONArray details = new JSONArray();
+        details.add(taskDetails);
+        JSONObject task = new JSONObject();
+        task.put("task-details", details);
+        JSONArray tasks = new JSONArray();
+        tasks.add(task);
+        JSONObject response = new JSONObject();
+        response.put("tasks", tasks);
+        return response;
+    }
+
+    private JSONObject showPackages(JSONObject payload)
+    {
+        JSONArray packages = new JSONArray();
+        int offset = getInt(payload, "offset", 0);
+        int end = Math.min(offset + getInt(payload, "limit", 50), settings.packages);
+        for (int p = offset; p < end; p++) {
+            JSONObject policyPackage = new JSONObject();
+            policyPackage.put("uid", uid(PACKAGE, p, 0));
+            policyPackage.put("name", packageName(p));
+            policyPackage.put("type", "package");
+            policyPackage.put("domain", domain());
+            packages.add(policyPackage);
+        }
+        return page("packages", packages, offset, settings.packages);
+    }
+
+    private JSONObject showPackage(JSONObject payload) throws MockApiError
+    {
+        int p = findPackage(payload);
+
+        JSONObject response = new JSONObject();
+        response.put("uid", uid(PACKAGE, p, 0));
+        response.put("name", packageName(p));
+        response.put("type", "package");
+        response.put("domain", domain());
+        response.put("access", true);
+        response.put("threat-prevention", settings.threatRules > 0);
+        response.put("nat-policy", settings.natRules > 0);
+        response.put("https-inspection-policy", false);
+
+        JSONArray accessLayers = new JSONArray();
+        accessLayers.add(layer(uid(ACCESS_LAYER, p, 0), packageName(p) + " Network"));
+        response.put("access-layers", accessLayers);
+        JSONArray threatLayers = new JSONArray();
+        threatLayers.add(layer(uid(THREAT_LAYER, p, 0), packageName(p) + " Threat Prevention"));
+        response.put("threat-layers", threatLayers);
+        return response;
+    }
+
+    private JSONObject showGatewaysAndServers(JSONObject payload)
+    {
+        JSONArray gateways = new JSONArray();
+        int offset = getInt(payload, "offset", 0);
+        int end = Math.min(offset + getInt(payload, "limit", 50), settings.packages);
+        for (int p = offset; p < end; p++) {
+            JSONObject policy = new JSONObject();
+            policy.put("access-policy-installed", true);
+            policy.put("access-policy-name", packageName(p));
+            policy.put("threat-policy-installed", settings.threatRules > 0);
+            policy.put("threat-policy-name", packageName(p));
+
+            JSONObject gateway = new JSONObject();
+            gateway.put("uid", uid(GATEWAY, p, 0));
+            gateway.put("name", "gateway_" + p);
+            gateway.put("type", "simple-gateway");
+            gateway.put("domain", domain());
+            gateway.put("ipv4-address", "172.16." + (p >>> 8 & 0xff) + "." + (p & 0xff));
+            gateway.put("policy", policy);
+            gateways.add(gateway);
+        }
+        return page("objects", gateways, offset, settings.packages);
+    }
+
+    private JSONObject showAccessLayer(JSONObject payload) throws MockApiError
+    {
+        String uid = getString(payload, "uid");
+        if (kindOf(uid) != INLINE_LAYER) {
+            throw notFound(uid);
+        }
+        return layer(uid, inlineLayerName(ownerOf(uid), indexOf(uid)));
+    }
+
+    private JSONObject showAccessRulebase(JSONObject payload) throws MockApiError
+    {
+        String layerUid = getString(payload, "uid");
+        int kind = kindOf(layerUid);
+        if (kind != ACCESS_LAYER && kind != INLINE_LAYER) {
+            throw notFound(layerUid);
+        }
+        int p = ownerOf(layerUid);
+        //The rules of the inline layers are numbered after the rules of the package layer
+        boolean inline = kind == INLINE_LAYER;
+        int total = inline ? settings.inlineLayerRules : settings.accessRules;
+        int firstRule = inline ? settings.accessRules + indexOf(layerUid) * settings.inlineLayerRules : 0;
+
+        int offset = getInt(payload, "offset", 0);
+        int end = Math.min(offset + getInt(payload, "limit", 50), total);
+        Set<String> dictionary = new LinkedHashSet<>();
+        JSONArray rulebase = new JSONArray();
+        JSONObject section = null;
+        for (int r = offset; r < end; r++) {
+            if (section == null || r % RULES_PER_SECTION == 0) {
+                int s = r / RULES_PER_SECTION;
+                section = new JSONObject();
+                section.put("uid", uid(ACCESS_SECTION, p, firstRule / RULES_PER_SECTION + s));
+                section.put("type", "access-section");
+                section.put("name", "Section " + (s + 1));
+                section.put("from", r + 1);
+                section.put("rulebase", new JSONArray());
+                rulebase.add(section);
+            }
+            ((JSONArray) section.get("rulebase")).add(accessRule(p, firstRule + r, r + 1, !inline, dictionary));
+            section.put("to", r + 1);
+        }
+        return rulebase(layerUid, rulebase, dictionary, offset, end, total);
+    }
+
+    private JSONObject accessRule(int p, int index, int ruleNumber, boolean withInlineLayers, Set<String> dictionary)
+    {
+        JSONObject rule = new JSONObject();
+        rule.put("uid", uid(ACCESS_RULE, p, index));
+        rule.put("type", "access-rule");
+        rule.put("name", "rule " + ruleNumber);
+        rule.put("rule-number", ruleNumber);
+        rule.put("enabled", index % 20 != 7);
+        rule.put("source", objects(index, 1, dictionary));
+        rule.put("source-negate", false);
+        rule.put("destination", objects(index, 2, dictionary));
+        rule.put("destination-negate", false);
+        rule.put("service", fixedObjects(dictionary, FIRST_SERVICE + index % (FIXED_OBJECTS.length - FIRST_SERVICE)));
+        rule.put("service-negate", false);
+        rule.put("vpn", fixedObjects(dictionary, ANY));
+        rule.put("content", fixedObjects(dictionary, ANY));
+        rule.put("content-negate", false);
+        rule.put("content-direction", "any");
+        rule.put("time", fixedObjects(dictionary, ANY));
+        rule.put("install-on", fixedObjects(dictionary, POLICY_TARGETS));
+        rule.put("comments", "");
+
+        JSONObject track = new JSONObject();
+        track.put("type", fixedObject(dictionary, LOG));
+        track.put("per-session", false);
+        track.put("per-connection", true);
+        track.put("accounting", false);
+        track.put("alert", "none");
+        rule.put("track", track);
+
+        int inlineLayer = withInlineLayers ? inlineLayerOf(ruleNumber - 1) : -1;
+        if (inlineLayer != -1) {
+            String inlineLayerUid = uid(INLINE_LAYER, p, inlineLayer);
+            rule.put("action", fixedObject(dictionary, INNER_LAYER));
+            rule.put("inline-layer", inlineLayerUid);
+            dictionary.add(inlineLayerUid);
+        }
+        else {
+            rule.put("action", fixedObject(dictionary, index % 3 == 2 ? DROP : ACCEPT));
+        }
+        return rule;
+    }
+
+    /**
+     * @return the inline layer of a given rule of a package layer, or -1 if the rule doesn't have one. The inline
+     *         layers are spread evenly over the rules.
+     */
+    private int inlineLayerOf(int rule)
+    {
+        if (settings.inlineLayers == 0 || settings.inlineLayerRules == 0) {
+            return -1;
+        }
+        int step = Math.max(1, settings.accessRules / settings.inlineLayers);
+        return rule % step == step - 1 && rule / step < settings.inlineLayers ? rule / step : -1;
+    }
+
+    private JSONObject showNatRulebase(JSONObject payload) throws MockApiError
+    {
+        int p = findPackage(new JSONObject(Collections.singletonMap("name", payload.get("package"))));
+        int offset = getInt(payload, "offset", 0);
+        int end = Math.min(offset + getInt(payload, "limit", 50), settings.natRules);
+        Set<String> dictionary = new LinkedHashSet<>();
+        JSONArray rulebase = new JSONArray();
+        for (int r = offset; r < end; r++) {
+            JSONObject rule = new JSONObject();
+            rule.put("uid", uid(NAT_RULE, p, r));
+            rule.put("type", "nat-rule");
+            rule.put("name", "nat rule " + (r + 1));
+            rule.put("rule-number", r + 1);
+            rule.put("enabled", true);
+            rule.put("method", "static");
+            rule.put("auto-generated", false);
+            rule.put("original-source", objects(r, 3, dictionary).get(0));
+            rule.put("original-destination", objects(r, 4, dictionary).get(0));
+            rule.put("original-service", fixedObject(dictionary, ANY));
+            rule.put("translated-source", objects(r, 5, dictionary).get(0));
+            rule.put("translated-destination", fixedObject(dictionary, ANY));
+            rule.put("translated-service", fixedObject(dictionary, ANY));
+            rule.put("install-on", fixedObjects(dictionary, POLICY_TARGETS));
+            rule.put("comments", "");
+            rulebase.add(rule);
+        }
+        return rulebase(uid(PACKAGE, p, 0), rulebase, dictionary, offset, end, settings.natRules);
+    }
+
+    private JSONObject showThreatRulebase(JSONObject payload) throws MockApiError
+    {
+        String layerUid = getString(payload, "uid");
+        if (kindOf(layerUid) != THREAT_LAYER) {
+            throw notFound(layerUid);
+        }
+        int p = ownerOf(layerUid);
+        int offset = getInt(payload, "offset", 0);
+        int end = Math.min(offset + getInt(payload, "limit", 50), settings.threatRules);
+        Set<String> dictionary = new LinkedHashSet<>();
+        JSONArray rulebase = new JSONArray();
+        for (int r = offset; r < end; r++) {
+            JSONObject rule = threatRow(uid(THREAT_RULE, p, r), "threat-rule", "threat rule " + (r + 1), r, dictionary);
+            rule.put("rule-number", r + 1);
+            rulebase.add(rule);
+        }
+        return rulebase(layerUid, rulebase, dictionary, offset, end, settings.threatRules);
+    }
+
+    private JSONObject showThreatRuleExceptionRulebase(JSONObject payload) throws MockApiError
+    {
+        String ruleUid = getString(payload, "rule-uid");
+        if (kindOf(ruleUid) != THREAT_RULE) {
+            throw notFound(ruleUid);
+        }
+        int p = ownerOf(ruleUid);
+        int r = indexOf(ruleUid);
+        int exceptions = r % 5 == 0 ? settings.exceptionsPerRule : 0;
+        Set<String> dictionary = new LinkedHashSet<>();
+        JSONArray rulebase = new JSONArray();
+        for (int e = 0; e < exceptions; e++) {
+            int index = r * settings.exceptionsPerRule + e;
+            JSONObject exception = threatRow(uid(THREAT_EXCEPTION, p, index), "threat-exception",
+                                             "exception " + (e + 1), index, dictionary);
+            exception.put("exception-number", e + 1);
+            exception.put("protection-or-site", fixedObjects(dictionary, ANY));
+            rulebase.add(exception);
+        }
+        return rulebase(ruleUid, rulebase, dictionary, 0, exceptions, exceptions);
+    }
+
+    private JSONObject threatRow(String uid, String type, String name, int index, Set<String> dictionary)
+    {
+        JSONObject row = new JSONObject();
+        row.put("uid", uid);
+        row.put("type", type);
+        row.put("name", name);
+        row.put("enabled", true);
+        row.put("protected-scope", objects(index, 6, dictionary));
+        row.put("protected-scope-negate", false);
+        row.put("source", fixedObjects(dictionary, ANY));
+        row.put("destination", fixedObjects(dictionary, ANY));
+        row.put("service", fixedObjects(dictionary, ANY));
+        row.put("action", fixedObject(dictionary, OPTIMIZED));
+        row.put("track", fixedObject(dictionary, LOG));
+        row.put("install-on", fixedObjects(dictionary, POLICY_TARGETS));
+        row.put("comments", "");
+        return row;
+    }
+
+    private JSONObject showObjects(JSONObject payload)
+    {
+        JSONArray objects = new JSONArray();
+        Object in = payload.get("in");
+        if (in instanceof JSONArray) {
+            //["objId", uid, uid, ...]
+            JSONArray uids = (JSONArray) in;
+            for (int i = 1; i < uids.size(); i++) {
+                JSONObject object = objectByUid(String.valueOf(uids.get(i)));
+                if (object != null) {
+                    objects.add(object);
+                }
+            }
+            return page("objects", objects, 0, objects.size());
+        }
+        int offset = getInt(payload, "offset", 0);
+        int end = Math.min(offset + getInt(payload, "limit", 50), settings.objects);
+        for (int i = offset; i < end; i++) {
+            objects.add(object(i));
+        }
+        return page("objects", objects, offset, settings.objects);
+    }
+
+    /**
+     * This function returns the rows of a rulebase page with the objects which the rows reference
+     */
+    private JSONObject rulebase(String uid, JSONArray rulebase, Set<String> dictionary, int offset, int end, int total)
+    {
+        JSONArray objects = new JSONArray();
+        for (String objectUid : dictionary) {
+            JSONObject object = objectByUid(objectUid);
+            if (object != null) {
+                objects.add(object);
+            }
+        }
+        //The rules of a section are nested in it, so the range is given by the caller
+        JSONObject response = page("rulebase", rulebase, offset, total);
+        response.put("from", end > offset ? offset + 1 : 0);
+        response.put("to", end > offset ? end : offset);
+        response.put("uid", uid);
+        response.put("objects-dictionary", objects);
+        return response;
+    }
+
+    private JSONObject page(String key, JSONArray items, int offset, int total)
+    {
+        JSONObject response = new JSONObject();
+        response.put(key, items);
+        response.put("from", items.isEmpty() ? 0 : offset + 1);
+        response.put("to", offset + items.size());
+        response.put("total", total);
+        return response;
+    }
+
+    /**
+     * This function returns the objects which a given rule references in a given column, 1 to 3 objects
+     */
+    private JSONArray objects(int index, int column, Set<String> dictionary)
+    {
+        JSONArray uids = new JSONArray();
+        if (settings.objects == 0) {
+            return fixedObjects(dictionary, ANY);
+        }
+        int count = 1 + (index + column) % 3;
+        for (int i = 0; i < count; i++) {
+            String uid = uid(OBJECT, 0, (int) (((long) index * 7919 + column * 104729L + i * 15485863L) % settings.objects));
+            uids.add(uid);
+            dictionary.add(uid);
+        }
+        return uids;
+    }
+
+    private JSONArray fixedObjects(Set<String> dictionary, int fixedObject)
+    {
+        JSONArray uids = new JSONArray();
+        uids.add(fixedObject(dictionary, fixedObject));
+        return uids;
+    }
+
+    private String fixedObject(Set<String> dictionary, int fixedObject)
+    {
+        String uid = uid(FIXED_OBJECT, 0, fixedObject);
+        dictionary.add(uid);
+        return uid;
+    }
+
+    private JSONObject objectByUid(String uid)
+    {
+        int index = indexOf(uid);
+        switch (kindOf(uid)) {
+            case OBJECT:
+                return index < settings.objects ? object(index) : null;
+            case FIXED_OBJECT:
+                if (index >= FIXED_OBJECTS.length) {
+                    return null;
+                }
+                JSONObject object = new JSONObject();
+                object.put("uid", uid);
+                object.put("name", FIXED_OBJECTS[index][0]);
+                object.put("type", FIXED_OBJECTS[index][1]);
+                object.put("domain", domain());
+                return object;
+            case INLINE_LAYER:
+                return layer(uid, inlineLayerName(ownerOf(uid), index));
+            default:
+                return null;
+        }
+    }
+
+    private JSONObject object(int i)
+    {
+        JSONObject object = new JSONObject();
+        object.put("uid", uid(OBJECT, 0, i));
+        object.put("domain", domain());
+        switch (i % 10) {
+            case 8:
+                object.put("type", "network");
+                object.put("name", "net_" + i);
+                object.put("subnet4", "10." + (i >>> 8 & 0xff) + "." + (i & 0xff) + ".0");
+                object.put("mask-length4", 24);
+                break;
+            case 9:
+                object.put("type", "group");
+                object.put("name", "group_" + i);
+                //The members are other objects, the tool retrieves the ones which the rules don't reference
+                JSONArray members = new JSONArray();
+                for (int member = 0; member < GROUP_MEMBERS; member++) {
+                    members.add(uid(OBJECT, 0, (int) (((long) i * 31 + member * 7L + 1) % settings.objects)));
+                }
+                object.put("members", members);
+                break;
+            default:
+                object.put("type", "host");
+                object.put("name", "host_" + i);
+                object.put("ipv4-address", "192.168." + (i >>> 8 & 0xff) + "." + (i & 0xff));
+                break;
+        }
+        object.put("comments", "");
+        object.put("color", "black");
+        return object;
+    }
+
+    private JSONObject layer(String uid, String name)
+    {
+        JSONObject layer = new JSONObject();
+        layer.put("uid", uid);
+        layer.put("name", name);
+        layer.put("type", kindOf(uid) == THREAT_LAYER ? "threat-layer" : "access-layer");
+        layer.put("domain", domain());
+        return layer;
+    }
+
+    private JSONObject domain()
+    {
+        JSONObject domain = new JSONObject();
+        domain.put("uid", "41e821a0-3720-11e3-aa6e-0800200c9fde");
+        domain.put("name", "SMC User");
+        domain.put("domain-type", "domain");
+        return domain;
+    }
+
+    private JSONObject message(String message)
+    {
+        JSONObject response = new JSONObject();
+        response.put("message", message);
+        return response;
+    }
+
+    private int findPackage(JSONObject payload) throws MockApiError
+    {
+        String name = getString(payload, "name");
+        for (int p = 0; p < settings.packages; p++) {
+            if (packageName(p).equals(name) || uid(PACKAGE, p, 0).equals(name)) {
+                return p;
+            }
+        }
+        throw notFound(name);
+    }
+
+    private static String packageName(int p)
+    {
+        return "Package_" + p;
+    }
+
+    private static String inlineLayerName(int p, int index)
+    {
+        return packageName(p) + " inline layer " + index;
+    }
+
+    private static MockApiError notFound(String name)
+    {
+        return new MockApiError(404, "generic_err_object_not_found", "Requested object [" + name + "] not found");
+    }
+
+    private static String getString(JSONObject payload, String key) throws MockApiError
+    {
+        Object value = payload.get(key);
+        if (value == null) {
+            throw new MockApiError(400, "generic_err_missing_required_parameters", "Missing parameter: [" + key + "]");
+        }
+        return value.toString();
+    }
+
+    private static int getInt(JSONObject payload, String key, int defaultValue)
+    {
+        Object value = payload.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * The uids are in the UUID format: the kind, the owner, and the index (kind-owner-4000-8000-index)
+     */
+    private static String uid(int kind, int owner, int index)
+    {
+        return String.format("%08x-%04x-4000-8000-%012x", kind, owner, index);
+    }
+
+    private static int kindOf(String uid)
+    {
+        return isSyntheticUid(uid) ? Integer.parseInt(uid.substring(0, 8), 16) : -1;
+    }
+
+    private static int ownerOf(String uid)
+    {
+        return Integer.parseInt(uid.substring(9, 13), 16);
+    }
+
+    private static int indexOf(String uid)
+    {
+        return isSyntheticUid(uid) ? (int) Long.parseLong(uid.substring(24), 16) : -1;
+    }
+
+    private static boolean isSyntheticUid(String uid)
+    {
+        return uid.length() == 36 && uid.startsWith("4000-8000-", 14) && uid.matches("[0-9a-f-]+");
+    }
+}
@@ -0,0 +1,89 @@
+package com.checkpoint.mgmt_api.examples;
+
+import com.checkpoint.mgmt_api.benchmarks.SyntheticData;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the way the tool adds the objects of a package: every operation adds all the synthetic
+ * objects to a new {@link PackageContext}.
+ * The class is in the package of the tool in order to reach its package-private functions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShowPackageToolBenchmark
+{
+    @Param({"1000", "50000", "500000"})
+    private int entries;
+
+    private List<JSONObject> objects;
+    private String folderPath;
+    private PackageContext context;
+
+    @Setup(Level.Trial)
+    public void createObjects() throws IOException
+    {
+        objects    = new SyntheticData().objects(entries);
+        folderPath = SyntheticData.createTempFolder("show_package_benchmark");
+    }
+
+    @Setup(Level.Invocation)
+    public void createContext() throws IOException
+    {
+        closeContext();
+        context = new PackageContext("benchmark", folderPath + "objects.json", folderPath + "rulebase.json");
+        //The objects which were added by the previous operation are cached (if the cache is used), start from an empty cache
+        ShowPackageConfiguration.INSTANCE.getObjectsCache().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles()
+    {
+        closeContext();
+        SyntheticData.deleteFolder(folderPath);
+    }
+
+    /**
+     * Writes the objects to the temp file of the objects
+     */
+    @Benchmark
+    public boolean writeJsonObjectToFile() throws IOException
+    {
+        boolean success = true;
+        for (JSONObject object : objects) {
+            success &= ShowPackageTool.writeJsonObjectToFile(object, context.getObjectsWriter());
+        }
+        context.getObjectsWriter().endArray();
+        return success;
+    }
+
+    /**
+     * Adds the objects to the dictionary and the temp file of the objects, like a run which exports a single package
+     * (the objects cache isn't used)
+     */
+    @Benchmark
+    public int addObjectInformationIntoCollections() throws IOException
+    {
+        for (JSONObject object : objects) {
+            ShowPackageTool.addObjectInformationIntoCollections(context, object);
+        }
+        context.getObjectsWriter().endArray();
+        return context.getUidToName().size();
+    }
+
+    private void closeContext()
+    {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.checkpoint.mgmt_api.examples;
+
+import com.checkpoint.mgmt_api.utils.AdaptiveConcurrencyLimiter;
+import com.checkpoint.mgmt_api.utils.DaemonThreadFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs the management API calls of the tool on a shared pool of threads.
+ * The number of calls which run at the same time is controlled by an {@link AdaptiveConcurrencyLimiter},
+ * a call whose result is null is considered as failed.
+ */
+class ApiCallScheduler
+{
+    //The number of concurrent calls to start with (the number of executors which was used before)
+    private static final int INITIAL_CONCURRENT_CALLS = 2;
+
+    private final ExecutorService executorService;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    ApiCallScheduler(int maxConcurrentCalls)
+    {
+        limiter = new AdaptiveConcurrencyLimiter(INITIAL_CONCURRENT_CALLS, maxConcurrentCalls);
+        executorService = Executors.newFixedThreadPool(maxConcurrentCalls, new DaemonThreadFactory("api-call-"));
+    }
+
+    /**
+     * This function submits a call to the pool. The call starts once the limiter allows it.
+     *
+     * @param task the call to run
+     *
+     * @return the future of the call's result
+     */
+    <T> Future<T> submit(final Callable<T> task)
+    {
+        return executorService.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception
+            {
+                limiter.acquire();
+                long start = System.nanoTime();
+                boolean success = false;
+                try {
+                    T result = task.call();
+                    success = result != null;
+                    return result;
+                }
+                finally {
+                    limiter.release(System.nanoTime() - start, success);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the current number of concurrent calls
+     */
+    int getConcurrency()
+    {
+        return limiter.getLimit();
+    }
+
+    /**
+     * @return a description of the concurrency which the scheduler settled on
+     */
+    String concurrencyToString()
+    {
+        return limiter.getLimit() + " concurrent call(s) (peak " + limiter.getPeakLimit() + ", ceiling "
+                + limiter.getMaxLimit() + ")";
+    }
+
+    /**
+     * This function stops the threads of the pool
+     */
+    void shutdown()
+    {
+        executorService.shutdownNow();
+    }
+}
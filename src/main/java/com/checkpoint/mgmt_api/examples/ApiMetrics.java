@@ -0,0 +1,284 @@
+package com.checkpoint.mgmt_api.examples;
+
+import com.checkpoint.mgmt_api.client.ApiResponse;
+import com.checkpoint.mgmt_api.utils.LatencyHistogram;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class collects the metrics of the management API commands which the tool runs: the number of calls, failures
+ * and retries, the latency percentiles, the bytes received and the objects returned per page.
+ * The metrics are written into the result folder (metrics.json) and summarized in the log file at the end of the run,
+ * to tell whether a slow run was slowed down by the server or by the tool itself.
+ *
+ * The bytes received are counted only for the raw responses (see {@link RawApiClient}), which are the pages of the
+ * rulebases and the nested objects. The responses of the client carry only their status code and parsed payload, not
+ * the length (or Content-Length) of their body, and it isn't worth serializing them again to measure it, so they
+ * aren't counted (see "bytes-received-source" in metrics.json).
+ */
+class ApiMetrics
+{
+    static final String FILE_NAME = "metrics.json";
+
+    //The keys of the items in the response of a paged command
+    private static final String[] PAGE_KEYS = {"rulebase", "objects", "packages"};
+    private static final double[] PERCENTILES = {50, 95, 99};
+    private static final String BYTES_RECEIVED_SOURCE = "The length of the raw responses (the pages of the rulebases"
+            + " and the nested objects), the responses which were parsed by the api client aren't counted";
+
+    private final ConcurrentHashMap<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+    private final long startTime = System.nanoTime();
+
+    /**
+     * This function records a call of a command
+     *
+     * @param command the command
+     * @param latencyNanos the time it took the call to complete
+     * @param response the response of the call, null if the call threw an exception
+     */
+    void record(String command, long latencyNanos, ApiResponse response)
+    {
+        boolean success = response != null && response.isSuccess();
+        long objects = -1;
+        if (success && response.getPayload() != null) {
+            objects = objectsInPage(response.getPayload());
+        }
+        //The length of a response which was parsed by the client is unknown
+        getCommand(command).record(latencyNanos, success, -1, objects);
+    }
+
+    /**
+     * This function records a call of a command whose raw response was read (see {@link RawApiClient})
+     *
+     * @param command the command
+     * @param latencyNanos the time it took the call to complete (including reading the response)
+     * @param success true if the command succeeded
+     * @param bytes the length of the response
+     */
+    void record(String command, long latencyNanos, boolean success, long bytes)
+    {
+        getCommand(command).record(latencyNanos, success, bytes, -1);
+    }
+
+    /**
+     * This function records the objects of a page whose raw response is read after its call was recorded
+     *
+     * @param command the command
+     * @param page the page, without the elements which were streamed (its "from" and "to" are counted)
+     */
+    void recordPage(String command, JSONObject page)
+    {
+        long objects = objectsInPage(page);
+        if (objects >= 0) {
+            getCommand(command).recordPage(objects);
+        }
+    }
+
+    /**
+     * This function records that a failed call of a command is run again (a page or a chunk of nested objects after
+     * a server or connection error, an inline layer which couldn't be retrieved before, the threat exceptions by the
+     * layer's name)
+     *
+     * @param command the command
+     */
+    void recordRetry(String command)
+    {
+        getCommand(command).recordRetry();
+    }
+
+    /**
+     * @return true if any call was recorded
+     */
+    boolean hasCalls()
+    {
+        return !commands.isEmpty();
+    }
+
+    /**
+     * @return the metrics of every command as a json object
+     */
+    JSONObject toJson()
+    {
+        JSONObject commandsJson = new JSONObject();
+        long calls = 0;
+        long failures = 0;
+        long bytes = 0;
+        for (Map.Entry<String, CommandMetrics> entry : new TreeMap<>(commands).entrySet()) {
+            CommandMetrics metrics = entry.getValue();
+            synchronized (metrics) {
+                commandsJson.put(entry.getKey(), metrics.toJson());
+                calls    += metrics.latencies.getCount();
+                failures += metrics.failures;
+                bytes    += metrics.bytes;
+            }
+        }
+
+        JSONObject content = new JSONObject();
+        content.put("duration-ms", (System.nanoTime() - startTime) / 1000000);
+        content.put("calls", calls);
+        content.put("failures", failures);
+        content.put("bytes-received", bytes);
+        content.put("bytes-received-source", BYTES_RECEIVED_SOURCE);
+        content.put("commands", commandsJson);
+        return content;
+    }
+
+    /**
+     * This function writes the metrics into a given result folder.
+     *
+     * @param directory the result folder
+     * @throws IOException in case the metrics couldn't be written
+     */
+    void save(String directory) throws IOException
+    {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(directory, FILE_NAME)), StandardCharsets.UTF_8))) {
+            toJson().writeJSONString(writer);
+        }
+    }
+
+    /**
+     * @return a line per command with its calls, failures, retries, latency percentiles and bytes (if counted),
+     *         the slowest commands (by total time) first
+     */
+    String summaryToString()
+    {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%-40s %8s %8s %8s %10s %10s %10s %12s %10s",
+                                     "command", "calls", "failed", "retries", "p50 ms", "p95 ms", "p99 ms",
+                                     "total ms", "KB"));
+        final Map<String, Double> totalMillis = new HashMap<>();
+        Map<String, String> lines = new HashMap<>();
+        for (Map.Entry<String, CommandMetrics> entry : commands.entrySet()) {
+            CommandMetrics metrics = entry.getValue();
+            synchronized (metrics) {
+                LatencyHistogram latencies = metrics.latencies;
+                double total = latencies.getMeanMillis() * latencies.getCount();
+                totalMillis.put(entry.getKey(), total);
+                lines.put(entry.getKey(), String.format("%-40s %8d %8d %8d %10.1f %10.1f %10.1f %12.0f %10s",
+                                                        entry.getKey(), latencies.getCount(), metrics.failures,
+                                                        metrics.retries, latencies.getPercentileMillis(50),
+                                                        latencies.getPercentileMillis(95),
+                                                        latencies.getPercentileMillis(99), total,
+                                                        metrics.sizedCalls == 0 ? "-" : metrics.bytes / 1024));
+            }
+        }
+        List<String> names = new ArrayList<>(lines.keySet());
+        Collections.sort(names, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b)
+            {
+                return Double.compare(totalMillis.get(b), totalMillis.get(a));
+            }
+        });
+        for (String name : names) {
+            summary.append(System.lineSeparator()).append(lines.get(name));
+        }
+        return summary.toString();
+    }
+
+    private CommandMetrics getCommand(String command)
+    {
+        CommandMetrics metrics = commands.get(command);
+        if (metrics == null) {
+            CommandMetrics newMetrics = new CommandMetrics();
+            metrics = commands.putIfAbsent(command, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @return the number of objects (or rules) in the response of a paged command, -1 if the command isn't paged
+     */
+    private static long objectsInPage(JSONObject payload)
+    {
+        Object from = payload.get("from");
+        Object to = payload.get("to");
+        if (from instanceof Number && to instanceof Number) {
+            return ((Number) from).longValue() == 0 ? 0 : ((Number) to).longValue() - ((Number) from).longValue() + 1;
+        }
+        for (String key : PAGE_KEYS) {
+            if (payload.get(key) instanceof JSONArray) {
+                return ((JSONArray) payload.get(key)).size();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The metrics of a single command
+     */
+    private static class CommandMetrics
+    {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private long failures;
+        private long retries;
+        private long bytes;
+        //The number of calls whose bytes were counted
+        private long sizedCalls;
+        private long pages;
+        private long objects;
+        private long maxObjectsPerPage;
+
+        synchronized void record(long latencyNanos, boolean success, long responseBytes, long pageObjects)
+        {
+            latencies.record(latencyNanos);
+            if (!success) {
+                failures++;
+            }
+            if (responseBytes >= 0) {
+                bytes += responseBytes;
+                sizedCalls++;
+            }
+            if (pageObjects >= 0) {
+                recordPage(pageObjects);
+            }
+        }
+
+        synchronized void recordPage(long pageObjects)
+        {
+            pages++;
+            objects += pageObjects;
+            maxObjectsPerPage = Math.max(maxObjectsPerPage, pageObjects);
+        }
+
+        synchronized void recordRetry()
+        {
+            retries++;
+        }
+
+        JSONObject toJson()
+        {
+            JSONObject latency = new JSONObject();
+            for (double percentile : PERCENTILES) {
+                latency.put("p" + (int) percentile, latencies.getPercentileMillis(percentile));
+            }
+            latency.put("mean", latencies.getMeanMillis());
+            latency.put("max", latencies.getMaxMillis());
+
+            JSONObject json = new JSONObject();
+            json.put("calls", latencies.getCount());
+            json.put("failures", failures);
+            json.put("retries", retries);
+            json.put("latency-ms", latency);
+            if (sizedCalls > 0) {
+                json.put("bytes-received", bytes);
+            }
+            if (pages > 0) {
+                json.put("pages", pages);
+                json.put("objects", objects);
+                json.put("objects-per-page", (double) objects / pages);
+                json.put("max-objects-per-page", maxObjectsPerPage);
+            }
+            return json;
+        }
+    }
+}
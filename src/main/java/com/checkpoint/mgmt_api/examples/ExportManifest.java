@@ -0,0 +1,208 @@
+package com.checkpoint.mgmt_api.examples;
+
+import com.checkpoint.mgmt_api.utils.JsonStreamReader;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class describes the files of a result folder, so a later run can reuse the files of the layers which didn't
+ * change (see --incremental-from).
+ * For every layer it holds the layer uid, the number of rules, the hash of the layer's json file, the uids which
+ * appear in the rules, the objects they reference and the inline layers.
+ */
+class ExportManifest
+{
+    static final String FILE_NAME = "manifest.json";
+    static final String JSON_SUFFIX = ".json";
+
+    private static final String SESSION_UID   = "session-uid";
+    private static final String SETTINGS      = "settings";
+    private static final String LAYERS        = "layers";
+    private static final String OBJECTS_FILES = "objects-files";
+
+    private String sessionUid;
+    private String settings;
+    private final Map<String, JSONObject> layers = new ConcurrentHashMap<>();
+    private final Set<String> objectsFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * This function reads the manifest of a given result folder.
+     *
+     * @param directory the result folder
+     * @return the manifest, or null if the folder doesn't have a manifest
+     *
+     * @throws IOException in case the manifest couldn't be read
+     * @throws ParseException in case the manifest is corrupted
+     */
+    static ExportManifest load(String directory) throws IOException, ParseException
+    {
+        File file = new File(directory, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        JSONObject content;
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            content = (JSONObject) new JSONParser().parse(reader);
+        }
+
+        ExportManifest manifest = new ExportManifest();
+        manifest.sessionUid = (String) content.get(SESSION_UID);
+        manifest.settings   = (String) content.get(SETTINGS);
+        JSONObject storedLayers = (JSONObject) content.get(LAYERS);
+        if (storedLayers != null) {
+            for (Object entry : storedLayers.entrySet()) {
+                Map.Entry layer = (Map.Entry) entry;
+                manifest.layers.put(layer.getKey().toString(), (JSONObject) layer.getValue());
+            }
+        }
+        JSONArray storedObjectsFiles = (JSONArray) content.get(OBJECTS_FILES);
+        if (storedObjectsFiles != null) {
+            for (Object objectsFile : storedObjectsFiles) {
+                manifest.objectsFiles.add(objectsFile.toString());
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * This function writes the manifest into a given result folder.
+     *
+     * @param directory the result folder
+     * @throws IOException in case the manifest couldn't be written
+     */
+    void save(String directory) throws IOException
+    {
+        JSONObject content = new JSONObject();
+        content.put(SESSION_UID, sessionUid);
+        content.put(SETTINGS, settings);
+        JSONObject storedLayers = new JSONObject();
+        storedLayers.putAll(layers);
+        content.put(LAYERS, storedLayers);
+        JSONArray storedObjectsFiles = new JSONArray();
+        storedObjectsFiles.addAll(objectsFiles);
+        content.put(OBJECTS_FILES, storedObjectsFiles);
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(directory, FILE_NAME)), StandardCharsets.UTF_8))) {
+            content.writeJSONString(writer);
+        }
+    }
+
+    String getSessionUid()
+    {
+        return sessionUid;
+    }
+
+    void setSessionUid(String sessionUid)
+    {
+        this.sessionUid = sessionUid;
+    }
+
+    String getSettings()
+    {
+        return settings;
+    }
+
+    void setSettings(String settings)
+    {
+        this.settings = settings;
+    }
+
+    /**
+     * @param fileBaseName the name (without suffix) of the layer's files
+     * @return the details of the layer, or null if the layer isn't in the manifest
+     */
+    JSONObject getLayer(String fileBaseName)
+    {
+        return layers.get(fileBaseName);
+    }
+
+    /**
+     * @param fileBaseName the name (without suffix) of the layer's files
+     * @param layer the details of the layer
+     */
+    void putLayer(String fileBaseName, JSONObject layer)
+    {
+        layers.put(fileBaseName, layer);
+    }
+
+    /**
+     * @return the names (without suffix) of the objects files of the packages
+     */
+    Set<String> getObjectsFiles()
+    {
+        return objectsFiles;
+    }
+
+    /**
+     * @param fileBaseName the name (without suffix) of the objects file of a package
+     */
+    void addObjectsFile(String fileBaseName)
+    {
+        objectsFiles.add(fileBaseName);
+    }
+
+    /**
+     * This function reads the objects of a package from a given result folder, one object at a time
+     *
+     * @param directory the result folder
+     * @param fileBaseName the name (without suffix) of the objects file
+     * @param handler receives the objects
+     *
+     * @throws IOException in case the file couldn't be read
+     * @throws ParseException in case the file is corrupted
+     */
+    static void readObjectsFile(String directory, String fileBaseName, JsonStreamReader.ElementHandler handler)
+            throws IOException, ParseException
+    {
+        File file = new File(directory, fileBaseName + JSON_SUFFIX);
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            JsonStreamReader.readArray(reader, handler);
+        }
+    }
+
+    /**
+     * This function calculates the SHA-256 hash of a given file
+     *
+     * @param file the file
+     * @return the hash as hex string
+     *
+     * @throws IOException in case the file couldn't be read
+     */
+    static String hashFile(Path file) throws IOException
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.checkpoint.mgmt_api.examples;
+
+import com.checkpoint.mgmt_api.utils.DaemonThreadFactory;
+import org.json.simple.JSONObject;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class counts the progress of the export (rules fetched out of the rules found so far, nested objects resolved
+ * and waiting), and reports it periodically to the console and the log file, so a long export doesn't look hung.
+ * The estimated time left is based on the rate of the fetched rules, the total grows as more layers are found
+ * (e.g. inline layers), so it's only an estimate.
+ */
+class ExportProgress
+{
+    private final AtomicLong rulesTotal      = new AtomicLong();
+    private final AtomicLong rulesFetched    = new AtomicLong();
+    private final AtomicLong objectsResolved = new AtomicLong();
+    private final AtomicLong objectsPending  = new AtomicLong();
+    private final long startTime = System.nanoTime();
+    //The time the first rules were found, the rate of the rules is measured since then (valid once rulesStarted)
+    private volatile long rulesStartTime;
+    private volatile boolean rulesStarted = false;
+
+    private ScheduledExecutorService reporter;
+
+    /**
+     * @param total the number of rules of a rulebase which is about to be fetched
+     */
+    void addRules(long total)
+    {
+        if (!rulesStarted) {
+            synchronized (this) {
+                if (!rulesStarted) {
+                    rulesStartTime = System.nanoTime();
+                    rulesStarted = true;
+                }
+            }
+        }
+        rulesTotal.addAndGet(total);
+    }
+
+    /**
+     * @param page the response of a page of a rulebase, its rules are counted as fetched
+     */
+    void addRulesPage(JSONObject page)
+    {
+        Object from = page.get("from");
+        Object to = page.get("to");
+        if (from instanceof Number && to instanceof Number && ((Number) from).longValue() > 0) {
+            rulesFetched.addAndGet(((Number) to).longValue() - ((Number) from).longValue() + 1);
+        }
+    }
+
+    /**
+     * @param count the number of nested objects which were retrieved
+     */
+    void addObjectsResolved(long count)
+    {
+        objectsResolved.addAndGet(count);
+    }
+
+    /**
+     * @param delta the change in the number of nested objects which wait to be retrieved
+     */
+    void addObjectsPending(long delta)
+    {
+        objectsPending.addAndGet(delta);
+    }
+
+    /**
+     * This function starts reporting the progress every given period
+     *
+     * @param period the period between the reports
+     * @param unit the unit of the period
+     * @param logger the logger which the progress is written to, in addition to the console
+     */
+    synchronized void start(long period, TimeUnit unit, final MyLogger logger)
+    {
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("progress-"));
+        reporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run()
+            {
+                String progress = "Progress: " + ExportProgress.this;
+                System.out.println(progress);
+                logger.info(progress);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * This function stops reporting the progress
+     */
+    synchronized void stop()
+    {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        long total = rulesTotal.get();
+        long fetched = rulesFetched.get();
+        StringBuilder progress = new StringBuilder();
+        progress.append("rules fetched ").append(fetched).append('/').append(total);
+        if (total > 0) {
+            progress.append(" (").append(Math.min(100, fetched * 100 / total)).append("%)");
+        }
+        progress.append(", nested objects resolved ").append(objectsResolved.get())
+                .append(" (queue ").append(objectsPending.get()).append(')')
+                .append(", elapsed ").append(formatSeconds((System.nanoTime() - startTime) / 1000000000L));
+
+        if (rulesStarted && fetched > 0 && fetched < total) {
+            double nanosPerRule = (double) (System.nanoTime() - rulesStartTime) / fetched;
+            progress.append(", ETA ").append(formatSeconds((long) (nanosPerRule * (total - fetched) / 1e9)));
+        }
+        return progress.toString();
+    }
+
+    private static String formatSeconds(long seconds)
+    {
+        return seconds >= 3600 ? String.format("%dh%02dm%02ds", seconds / 3600, seconds / 60 % 60, seconds % 60)
+                               : seconds >= 60 ? String.format("%dm%02ds", seconds / 60, seconds % 60)
+                                               : seconds + "s";
+    }
+}
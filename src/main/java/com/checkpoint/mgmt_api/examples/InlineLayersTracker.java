@@ -0,0 +1,64 @@
+package com.checkpoint.mgmt_api.examples;
+
+import java.util.concurrent.Executor;
+
+/**
+ * This class runs the export of the inline layers of a layer on a shared pool and tracks them until all of them,
+ * including the inline layers they discover, are done.
+ * The tasks never wait for each other inside the pool: an inline layer which discovers inline layers of its own
+ * submits them to the same tracker and returns, only the thread which created the tracker waits.
+ */
+class InlineLayersTracker
+{
+    private final Executor executor;
+    private int pendingTasks = 0;
+
+    InlineLayersTracker(Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * This function submits a task to the pool
+     *
+     * @param task the export of an inline layer
+     */
+    void submit(final Runnable task)
+    {
+        synchronized (this) {
+            pendingTasks++;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                try {
+                    task.run();
+                }
+                finally {
+                    taskDone();
+                }
+            }
+        });
+    }
+
+    private synchronized void taskDone()
+    {
+        pendingTasks--;
+        if (pendingTasks == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * This function waits until all the submitted tasks, and the tasks they submitted, are done.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void await() throws InterruptedException
+    {
+        while (pendingTasks > 0) {
+            wait();
+        }
+    }
+}
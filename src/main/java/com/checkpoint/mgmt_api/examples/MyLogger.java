@@ -60,16 +60,19 @@ class MyLogger extends Logger
     @Override
     public void severe(String message){
         super.severe(message);
-        if (mostSevereLevel < SEVERE_CODE) {
-            this.mostSevereLevel = SEVERE_CODE;
-        }
+        updateMostSevereLevel(SEVERE_CODE);
     }
 
     @Override
     public void warning(String message){
         super.warning(message);
-        if (mostSevereLevel < WARNING_CODE) {
-            this.mostSevereLevel = WARNING_CODE;
+        updateMostSevereLevel(WARNING_CODE);
+    }
+
+    //Packages may be exported concurrently, so the level is updated by several threads
+    private synchronized void updateMostSevereLevel(int level){
+        if (mostSevereLevel < level) {
+            this.mostSevereLevel = level;
         }
     }
 
@@ -79,7 +82,7 @@ class MyLogger extends Logger
         super.setLevel(newLevel);
     }
 
-    int getMostSevereLevel( ){
+    synchronized int getMostSevereLevel( ){
         return mostSevereLevel;
     }
 }
@@ -0,0 +1,173 @@
+package com.checkpoint.mgmt_api.examples;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds the objects which were retrieved during the run, keyed by their uid.
+ * The cache survives between the packages, so an object which is shared by several packages (e.g. Any, common
+ * networks and services) is retrieved from the server only once.
+ * The uids which the server failed to return are kept as well, so they are not requested again by the next packages.
+ *
+ * The cache is used only if the objects are needed again: more than one package is exported, or the objects are
+ * kept between runs (--objects-cache-dir, --incremental-from). The objects are kept as their json text (UTF-8), which
+ * is a fraction of the size of the parsed objects, up to {@value #MAX_CACHED_BYTES} bytes. Objects which don't fit
+ * are retrieved from the server again when they're needed.
+ */
+class ObjectsCache
+{
+    static final long MAX_CACHED_BYTES = 256L * 1024 * 1024;
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Set<String> missingUids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicLong hits     = new AtomicLong();
+    private final AtomicLong misses   = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean enabled = false;
+
+    /**
+     * This function enables the cache, until then no object is cached
+     */
+    void enable()
+    {
+        enabled = true;
+    }
+
+    /**
+     * This function adds a given object to the cache, unless the cache is disabled or full.
+     * An object which is already cached isn't replaced (it's the same object, e.g. one taken from the cache).
+     *
+     * @param object the object, an object without uid is ignored
+     */
+    void put(JSONObject object)
+    {
+        Object uid = object.get("uid");
+        if (!enabled || uid == null || objects.containsKey(uid.toString())) {
+            return;
+        }
+        byte[] json = object.toJSONString().getBytes(StandardCharsets.UTF_8);
+        if (cachedBytes.get() + json.length > MAX_CACHED_BYTES) {
+            rejected.incrementAndGet();
+            return;
+        }
+        byte[] previous = objects.put(uid.toString(), json);
+        cachedBytes.addAndGet(json.length - (previous == null ? 0 : previous.length));
+    }
+
+    /**
+     * This function removes the object of a given uid from the cache
+     *
+     * @param uid the uid of the object
+     *
+     * @return true if the object was cached
+     */
+    boolean remove(String uid)
+    {
+        byte[] previous = objects.remove(uid);
+        if (previous == null) {
+            return false;
+        }
+        cachedBytes.addAndGet(-previous.length);
+        return true;
+    }
+
+    /**
+     * This function removes all the objects from the cache
+     */
+    void clear()
+    {
+        for (String uid : objects.keySet()) {
+            remove(uid);
+        }
+    }
+
+    /**
+     * This function returns the cached object of a given uid and counts the lookup as a hit or a miss.
+     * Every call returns an object of its own.
+     *
+     * @param uid the uid of the object
+     *
+     * @return the object, or null if it isn't cached
+     */
+    JSONObject get(String uid)
+    {
+        if (!enabled) {
+            return null;
+        }
+        byte[] json = objects.get(uid);
+        if (json != null) {
+            try {
+                JSONObject object = (JSONObject) new JSONParser().parse(new String(json, StandardCharsets.UTF_8));
+                hits.incrementAndGet();
+                return object;
+            }
+            catch (ParseException | ClassCastException e) {
+                remove(uid);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * This function marks a given uid as one that the server failed to return
+     *
+     * @param uid the uid
+     */
+    void markMissing(String uid)
+    {
+        missingUids.add(uid);
+    }
+
+    /**
+     * @param uid the uid
+     *
+     * @return true if the server already failed to return the object of the given uid
+     */
+    boolean isMissing(String uid)
+    {
+        return missingUids.contains(uid);
+    }
+
+    /**
+     * @return the cached objects as json text (UTF-8)
+     */
+    Collection<byte[]> getObjects()
+    {
+        return objects.values();
+    }
+
+    /**
+     * @return the number of cached objects
+     */
+    int size()
+    {
+        return objects.size();
+    }
+
+    /**
+     * @return a summary of the cache usage
+     */
+    String statisticsToString()
+    {
+        if (!enabled) {
+            return "not used";
+        }
+        String statistics = objects.size() + " object(s) cached (" + cachedBytes.get() / 1024 + " KB), " + hits.get()
+                + " hit(s), " + misses.get() + " miss(es)";
+        if (rejected.get() > 0) {
+            statistics += ", " + rejected.get() + " object(s) not cached (the cache is full)";
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,132 @@
+package com.checkpoint.mgmt_api.examples;
+
+import com.checkpoint.mgmt_api.utils.FileNameUtils;
+import com.checkpoint.mgmt_api.utils.JsonStreamReader;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.ParseException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+
+/**
+ * This class stores the objects which were retrieved during a run in a local directory, so the next runs against the
+ * same server and domain can reuse them.
+ * The stored objects are tagged with the uid of the published session they were retrieved from. An object is valid
+ * for a later session only if the server reports that it wasn't modified since the stored session.
+ * The settings which affect the content of the objects (e.g. the api version, --show-membership) are stored as well,
+ * objects which were stored with other settings aren't used.
+ */
+class ObjectsCacheFile
+{
+    private static final String FILE_PREFIX   = "objects-cache_";
+    private static final String FILE_SUFFIX   = ".json";
+    private static final String SESSION_UID   = "session-uid";
+    private static final String SETTINGS      = "settings";
+    private static final String OBJECTS       = "objects";
+
+    private final Path cacheFile;
+    private String sessionUid = null;
+    private String settings = null;
+
+    /**
+     * @param directory the directory of the cache
+     * @param server the management server
+     * @param domain the domain, or null if no domain was given
+     */
+    ObjectsCacheFile(String directory, String server, String domain)
+    {
+        String name = FILE_PREFIX + server + "_" + (domain == null || domain.isEmpty() ? "default" : domain);
+        cacheFile = Paths.get(directory, FileNameUtils.sanitizeFileName(name) + FILE_SUFFIX);
+    }
+
+    /**
+     * This function reads the stored objects, one object at a time.
+     * Nothing is read if there is no cache file yet.
+     *
+     * @param handler receives the stored objects
+     *
+     * @throws IOException in case the file couldn't be read
+     * @throws ParseException in case the file is corrupted
+     */
+    void load(JsonStreamReader.ElementHandler handler) throws IOException, ParseException
+    {
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile.toFile()),
+                                                                      StandardCharsets.UTF_8))) {
+            JSONObject content = JsonStreamReader.readArray(reader, OBJECTS, handler);
+            Object storedSession = content == null ? null : content.get(SESSION_UID);
+            if (storedSession != null && content.containsKey(OBJECTS)) {
+                sessionUid = storedSession.toString();
+            }
+            Object storedSettings = content == null ? null : content.get(SETTINGS);
+            if (storedSettings != null) {
+                settings = storedSettings.toString();
+            }
+        }
+    }
+
+    /**
+     * @return the uid of the published session of the stored objects, or null if nothing was loaded
+     */
+    String getSessionUid()
+    {
+        return sessionUid;
+    }
+
+    /**
+     * @return the settings the stored objects were retrieved with, or null if nothing was loaded
+     */
+    String getSettings()
+    {
+        return settings;
+    }
+
+    /**
+     * This function replaces the stored objects with the given ones.
+     * The objects are written to a temp file first, so a run which is stopped in the middle doesn't break the cache.
+     *
+     * @param currentSessionUid the uid of the published session the objects were retrieved from
+     * @param currentSettings the settings the objects were retrieved with
+     * @param objects the objects to store, as json text (UTF-8)
+     *
+     * @throws IOException in case the file couldn't be written
+     */
+    void save(String currentSessionUid, String currentSettings, Collection<byte[]> objects) throws IOException
+    {
+        Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+        Path tempFile = Paths.get(cacheFile.toString() + ".tmp");
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile.toFile()))) {
+            out.write(("{\"" + SESSION_UID + "\":" + JSONValue.toJSONString(currentSessionUid)
+                    + ",\"" + SETTINGS + "\":" + JSONValue.toJSONString(currentSettings)
+                    + ",\"" + OBJECTS + "\":[").getBytes(StandardCharsets.UTF_8));
+            boolean first = true;
+            for (byte[] object : objects) {
+                if (!first) {
+                    out.write(',');
+                }
+                out.write(object);
+                first = false;
+            }
+            out.write("]}".getBytes(StandardCharsets.UTF_8));
+        }
+        Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return the path of the cache file
+     */
+    String getPath()
+    {
+        return cacheFile.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package com.checkpoint.mgmt_api.examples;
+
+import org.json.simple.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class fetches the pages of a paged show command and hands them over in their original order.
+ * At most a fixed window of pages is requested ahead of the page which is being consumed, so the number of
+ * responses held in memory depends on the window size and not on the number of pages. The pages are kept as their
+ * raw responses until they're consumed (see {@link StreamedResponse}).
+ */
+class OrderedPageFetcher
+{
+    private final ApiCallScheduler scheduler;
+    private final ApiCallTaskFactory taskFactory;
+    private final JSONObject payloadTemplate;
+    private final int total;
+    private final int limit;
+    private final int window;
+    private final long deadline;
+
+    private final Deque<Future<StreamedResponse>> pending = new ArrayDeque<>();
+    private int nextOffset = 0;
+    private int pagesTaken = 0;
+
+    /**
+     * This interface creates the call which fetches a single page
+     */
+    interface ApiCallTaskFactory
+    {
+        Callable<StreamedResponse> create(JSONObject payload);
+    }
+
+    /**
+     * @param scheduler the scheduler which runs the calls
+     * @param taskFactory creates the call of a page from its payload
+     * @param payloadTemplate the payload of the command, the offset and limit are added per page
+     * @param total the total number of objects to fetch
+     * @param limit the number of objects in a page
+     * @param window the maximum number of pages which are fetched ahead
+     * @param timeout the maximum time to wait for all the pages
+     * @param unit the unit of the timeout
+     */
+    OrderedPageFetcher(ApiCallScheduler scheduler, ApiCallTaskFactory taskFactory, JSONObject payloadTemplate,
+                       int total, int limit, int window, long timeout, TimeUnit unit)
+    {
+        this.scheduler       = scheduler;
+        this.taskFactory     = taskFactory;
+        this.payloadTemplate = payloadTemplate;
+        this.total           = total;
+        this.limit           = limit;
+        this.window          = Math.max(1, window);
+        this.deadline        = System.nanoTime() + unit.toNanos(timeout);
+        fillWindow();
+    }
+
+    /**
+     * @return true if there are pages which were not handed over yet
+     */
+    boolean hasNext()
+    {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * This function waits for the next page in order and requests another page instead of it.
+     *
+     * @return the response of the next page, or null if the call of the page failed
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if the call of the page threw an exception
+     * @throws TimeoutException if the pages were not fetched within the timeout
+     */
+    StreamedResponse next() throws InterruptedException, ExecutionException, TimeoutException
+    {
+        Future<StreamedResponse> future = pending.poll();
+        pagesTaken++;
+        StreamedResponse response = future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        fillWindow();
+        return response;
+    }
+
+    /**
+     * @return the number of pages of the command
+     */
+    int getNumberOfPages()
+    {
+        return total == 0 ? 0 : (total + limit - 1) / limit;
+    }
+
+    /**
+     * @return the number of pages which were handed over
+     */
+    int getPagesTaken()
+    {
+        return pagesTaken;
+    }
+
+    /**
+     * This function cancels the pages which were requested and not handed over yet, the pages which were already
+     * fetched are discarded
+     */
+    void cancel()
+    {
+        Future<StreamedResponse> future;
+        while ((future = pending.poll()) != null) {
+            if (!future.cancel(true) && future.isDone()) {
+                try {
+                    StreamedResponse response = future.get();
+                    if (response != null) {
+                        response.discard();
+                    }
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    //The page failed, there is nothing to discard
+                }
+            }
+        }
+        nextOffset = total;
+    }
+
+    private void fillWindow()
+    {
+        while (pending.size() < window && nextOffset < total) {
+            JSONObject payload = new JSONObject(payloadTemplate);
+            payload.put("offset", nextOffset);
+            payload.put("limit", limit);
+            pending.add(scheduler.submit(taskFactory.create(payload)));
+
+            nextOffset += limit;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.checkpoint.mgmt_api.examples;
+
+import com.checkpoint.mgmt_api.utils.JsonArrayWriter;
+import com.checkpoint.mgmt_api.utils.UidDictionary;
+import com.checkpoint.mgmt_api.utils.UidUtils;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * This class holds the state of a single policy package while it is being exported:
+ * the temp files of the objects and the rulebase, the uid to name dictionary, the nested objects to retrieve and
+ * the counters of the objects types.
+ * Every package has its own context, so several packages can be exported at the same time.
+ * The inline layers of a package are exported concurrently, each one with a context of its own that has its own
+ * rulebase temp file and shares the objects of the package (see {@link #createInlineLayerContext}).
+ */
+class PackageContext
+{
+    private static final String TYPE      = "type";
+    private static final String UNDEFINED = "undefined";
+
+    private final PackageObjects objects;
+    private final String rulebaseFileName;
+    private final JsonArrayWriter rulbaseWriter;
+    //The tracker of the inline layers which are exported concurrently, null if it's the context of the package
+    private final InlineLayersTracker inlineLayersTracker;
+
+    //The uids which appear in the rules of the layer which is being written, and the number of its rules
+    private Set<String> layerUids = new HashSet<>();
+    private int layerRules = 0;
+
+    /**
+     * The objects of a package, shared by the context of the package and the contexts of its inline layers.
+     * The objects are added while holding the lock of this class.
+     */
+    private static class PackageObjects
+    {
+        private final String packageName;
+        private final String objectsFileName;
+        private final JsonArrayWriter objectsWriter;
+
+        private final UidDictionary uidToName = new UidDictionary();
+        private final Queue<String> nestedObjectsToRetrieve = new LinkedList<>();
+        private final Set<String> requestedNestedObjects = new HashSet<>();
+        private JSONObject allTypes = null;
+
+        PackageObjects(String packageName, String objectsFileName) throws IOException
+        {
+            this.packageName     = packageName;
+            this.objectsFileName = objectsFileName;
+
+            //Open write access to the temp file of the objects
+            objectsWriter = new JsonArrayWriter(objectsFileName);
+        }
+    }
+
+    /**
+     * @param packageName the name of the package
+     * @param objectsFileName the temp file of the objects
+     * @param rulebaseFileName the temp file of the rulebase
+     *
+     * @throws IOException in case the temp files couldn't be opened
+     */
+    PackageContext(String packageName, String objectsFileName, String rulebaseFileName) throws IOException
+    {
+        this(new PackageObjects(packageName, objectsFileName), rulebaseFileName, null);
+    }
+
+    private PackageContext(PackageObjects objects, String rulebaseFileName, InlineLayersTracker inlineLayersTracker)
+            throws IOException
+    {
+        this.objects             = objects;
+        this.rulebaseFileName    = rulebaseFileName;
+        this.inlineLayersTracker = inlineLayersTracker;
+
+        //Open write access to the temp file of the rulebase
+        rulbaseWriter = new JsonArrayWriter(rulebaseFileName);
+    }
+
+    /**
+     * This function creates the context of an inline layer of the package.
+     * The context has its own rulebase temp file and shares the objects of the package.
+     *
+     * @param rulebaseFileName the temp file of the rulebase of the inline layer
+     * @param inlineLayersTracker the tracker of the inline layers which are exported concurrently
+     *
+     * @return the context
+     * @throws IOException in case the temp file couldn't be opened
+     */
+    PackageContext createInlineLayerContext(String rulebaseFileName, InlineLayersTracker inlineLayersTracker)
+            throws IOException
+    {
+        return new PackageContext(objects, rulebaseFileName, inlineLayersTracker);
+    }
+
+    /**
+     * @return the tracker of the inline layers which are exported concurrently, or null if it's the context of
+     *         the package
+     */
+    InlineLayersTracker getInlineLayersTracker()
+    {
+        return inlineLayersTracker;
+    }
+
+    /**
+     * Get the lock which is held while adding objects to the package.
+     *
+     * @return the lock
+     */
+    Object getObjectsLock()
+    {
+        return objects;
+    }
+
+    String getPackageName()
+    {
+        return objects.packageName;
+    }
+
+    UidDictionary getUidToName()
+    {
+        return objects.uidToName;
+    }
+
+    Queue<String> getNestedObjectsToRetrieve()
+    {
+        return objects.nestedObjectsToRetrieve;
+    }
+
+    /**
+     * Get the nested objects which were already queued to be retrieved.
+     *
+     * @return the uids of the objects
+     */
+    Set<String> getRequestedNestedObjects()
+    {
+        return objects.requestedNestedObjects;
+    }
+
+    JsonArrayWriter getObjectsWriter()
+    {
+        return objects.objectsWriter;
+    }
+
+    JsonArrayWriter getRulbaseWriter()
+    {
+        return rulbaseWriter;
+    }
+
+    String getObjectsFileName()
+    {
+        return objects.objectsFileName;
+    }
+
+    String getRulebaseFileName()
+    {
+        return rulebaseFileName;
+    }
+
+    /**
+     * This function adds a given rule to the layer which is being written
+     *
+     * @param rule the rule
+     */
+    void addLayerRule(JSONObject rule)
+    {
+        layerRules++;
+        UidUtils.collectUids(rule, layerUids);
+    }
+
+    /**
+     * @return the uids which appear in the rules of the layer which is being written
+     */
+    Set<String> getLayerUids()
+    {
+        return layerUids;
+    }
+
+    /**
+     * @return the number of rules of the layer which is being written
+     */
+    int getLayerRules()
+    {
+        return layerRules;
+    }
+
+    /**
+     * This function starts a new layer, it's called once the previous layer was written
+     */
+    void resetLayer()
+    {
+        layerUids = new HashSet<>();
+        layerRules = 0;
+    }
+
+    /**
+     * This function adds one to the counter of the type of a given object.
+     *
+     * @param object the object
+     */
+    void countObjectType(JSONObject object)
+    {
+        String type;
+        if (object.containsKey(TYPE)) {
+            type = object.get(TYPE).toString();
+        }
+        else {
+            //type field doesn't exist in the object, define the type as "undefined"
+            type = UNDEFINED;
+        }
+        synchronized (objects) {
+            if (objects.allTypes == null) {
+                objects.allTypes = new JSONObject();
+            }
+            if (objects.allTypes.containsKey(type)) {//type already exists, add one to the counter
+                int count = Integer.parseInt(objects.allTypes.get(type).toString());
+                count++;
+                objects.allTypes.put(type, count);
+            }
+            else {
+                objects.allTypes.put(type, 1);
+            }
+        }
+    }
+
+    /**
+     * @return the number of objects of each type, or null if there are no objects
+     */
+    JSONObject getAllTypes()
+    {
+        return objects.allTypes;
+    }
+
+    /**
+     * This function closes and deletes the temp files of the context.
+     * The objects temp file is closed by the context of the package only.
+     *
+     * @return true on success, otherwise false.
+     */
+    boolean close()
+    {
+        try {
+            if (inlineLayersTracker == null) {
+                objects.objectsWriter.close();
+                Files.deleteIfExists(Paths.get(objects.objectsFileName));
+            }
+            rulbaseWriter.close();
+            Files.deleteIfExists(Paths.get(rulebaseFileName));
+        }
+        catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
+}
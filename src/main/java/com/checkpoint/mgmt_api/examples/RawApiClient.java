@@ -0,0 +1,281 @@
+package com.checkpoint.mgmt_api.examples;
+
+import org.json.simple.JSONObject;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Locale;
+
+/**
+ * This class runs management API commands and returns the raw body of their responses, so large responses (the pages
+ * of the rulebases, the chunks of the nested objects) can be parsed one element at a time instead of being parsed
+ * into a single json tree by the API client library.
+ * The commands are sent over the session of the API client (the "X-chkp-sid" header) to the same server and port.
+ * A body which is larger than {@value #MEMORY_BODY_LIMIT} bytes is written into a temp file while it's received,
+ * so a page waiting to be consumed doesn't hold its whole body in memory.
+ *
+ * Every connection must present the certificate whose fingerprint the API client verified (the fingerprint which
+ * the user accepted for the server), otherwise the connection is closed before the session id is sent.
+ * Only with -b (unsafe) any certificate is accepted, like the API client does.
+ */
+class RawApiClient
+{
+    private static final String CONTEXT           = "/web_api/";
+    private static final String SID_HEADER        = "X-chkp-sid";
+    private static final int BUFFER_SIZE          = 64 * 1024;
+    private static final int MEMORY_BODY_LIMIT    = 256 * 1024;
+    private static final String TEMP_FILE_PREFIX  = "show_package_response";
+
+    private final String baseUrl;
+    private final String sid;
+    private final Proxy proxy;
+    private final SSLSocketFactory socketFactory;
+    private final HostnameVerifier hostnameVerifier;
+
+    /**
+     * @param server the management server
+     * @param port the port of the management server
+     * @param cloudMgmtId the Smart-1 Cloud management UID, or null
+     * @param sid the session id of the API client
+     * @param tlsVersion the TLS protocol version, or null for the default one
+     * @param proxy the proxy settings (proxy.server:port), or null if no proxy is used
+     * @param unsafe true if the certificate of the server isn't verified
+     * @param fingerprint the SHA-1 fingerprint of the server's certificate which the API client verified,
+     *                    it's ignored if unsafe
+     *
+     * @throws GeneralSecurityException in case the TLS protocol isn't supported
+     * @throws IllegalArgumentException in case the proxy settings aren't supported (e.g. they contain credentials),
+     *                                  or no fingerprint is given
+     */
+    RawApiClient(String server, int port, String cloudMgmtId, String sid, String tlsVersion, String proxy,
+                 boolean unsafe, String fingerprint) throws GeneralSecurityException
+    {
+        String context = cloudMgmtId == null || cloudMgmtId.isEmpty() ? CONTEXT : "/" + cloudMgmtId + CONTEXT;
+        this.baseUrl = "https://" + (server.contains(":") ? "[" + server + "]" : server) + ":" + port + context;
+        this.sid     = sid;
+        this.proxy   = parseProxy(proxy);
+
+        final FingerprintTrustManager trustManager = new FingerprintTrustManager(unsafe, fingerprint);
+        SSLContext sslContext = SSLContext.getInstance(tlsVersion == null || tlsVersion.isEmpty() ? "TLS" : tlsVersion);
+        sslContext.init(null, new TrustManager[]{trustManager}, null);
+        this.socketFactory = sslContext.getSocketFactory();
+
+        //The server is identified by the fingerprint of its certificate, which usually isn't issued to its address
+        this.hostnameVerifier = new HostnameVerifier() {
+            @Override
+            public boolean verify(String hostname, SSLSession session)
+            {
+                try {
+                    Certificate[] chain = session.getPeerCertificates();
+                    return trustManager.isTrusted(chain.length == 0 ? null : chain[0]);
+                }
+                catch (SSLPeerUnverifiedException e) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    /**
+     * This function runs a command and reads the whole body of its response
+     *
+     * @param command the command to run
+     * @param payload the payload of the command
+     *
+     * @return the status code and the body of the response
+     * @throws IOException in case the command couldn't be sent or its response couldn't be read
+     */
+    StreamedResponse call(String command, JSONObject payload) throws IOException
+    {
+        URL url = new URL(baseUrl + command);
+        HttpsURLConnection connection = (HttpsURLConnection) (proxy == null ? url.openConnection()
+                                                                            : url.openConnection(proxy));
+        connection.setSSLSocketFactory(socketFactory);
+        connection.setHostnameVerifier(hostnameVerifier);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setRequestProperty("Accept", "application/json");
+        if (sid != null) {
+            connection.setRequestProperty(SID_HEADER, sid);
+        }
+
+        byte[] body = payload.toJSONString().getBytes(StandardCharsets.UTF_8);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+
+        int statusCode = connection.getResponseCode();
+        InputStream in = statusCode < HttpsURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream()
+                                                                           : connection.getErrorStream();
+        if (in == null) {
+            return new StreamedResponse(statusCode, new byte[0]);
+        }
+        //The whole body is read, so the connection is kept alive for the next commands
+        try {
+            return readBody(statusCode, in, connection.getContentLength());
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * This function reads a body into memory, or into a temp file once it's larger than {@value #MEMORY_BODY_LIMIT}
+     * bytes
+     */
+    private static StreamedResponse readBody(int statusCode, InputStream in, int contentLength) throws IOException
+    {
+        ByteArrayOutputStream memory = new ByteArrayOutputStream(contentLength > 0 && contentLength <= MEMORY_BODY_LIMIT
+                                                                         ? contentLength : BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while (memory.size() <= MEMORY_BODY_LIMIT && (read = in.read(buffer)) != -1) {
+            memory.write(buffer, 0, read);
+        }
+        if (memory.size() <= MEMORY_BODY_LIMIT) {
+            return new StreamedResponse(statusCode, memory.toByteArray());
+        }
+
+        File file = File.createTempFile(TEMP_FILE_PREFIX, ".json");
+        file.deleteOnExit();
+        long length = memory.size();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+            memory.writeTo(out);
+            memory = null;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                length += read;
+            }
+        }
+        catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        return new StreamedResponse(statusCode, file, length);
+    }
+
+    /**
+     * @param proxy the proxy settings (proxy.server:port)
+     *
+     * @return the proxy, or null if no proxy is used
+     * @throws IllegalArgumentException in case the settings contain credentials or no port
+     */
+    private static Proxy parseProxy(String proxy)
+    {
+        if (proxy == null || proxy.isEmpty()) {
+            return null;
+        }
+        if (proxy.contains("@")) {
+            throw new IllegalArgumentException("A proxy with credentials isn't supported");
+        }
+        int portIndex = proxy.lastIndexOf(':');
+        if (portIndex <= 0) {
+            throw new IllegalArgumentException("The port of the proxy is missing");
+        }
+        try {
+            int port = Integer.parseInt(proxy.substring(portIndex + 1));
+            return new Proxy(Proxy.Type.HTTP, InetSocketAddress.createUnresolved(proxy.substring(0, portIndex), port));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port of the proxy '" + proxy + "'");
+        }
+    }
+
+    /**
+     * @param fingerprint a fingerprint, hex digits which may be separated by colons or spaces
+     *
+     * @return the fingerprint as uppercase hex digits only
+     */
+    private static String normalizeFingerprint(String fingerprint)
+    {
+        return fingerprint.replaceAll("[:\\s]", "").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * A trust manager which accepts only the certificate with the fingerprint that the API client verified
+     */
+    private static class FingerprintTrustManager implements X509TrustManager
+    {
+        private final boolean unsafe;
+        private final String fingerprint;
+
+        FingerprintTrustManager(boolean unsafe, String fingerprint)
+        {
+            if (!unsafe && (fingerprint == null || normalizeFingerprint(fingerprint).isEmpty())) {
+                throw new IllegalArgumentException("The fingerprint of the server is unknown");
+            }
+            this.unsafe      = unsafe;
+            this.fingerprint = unsafe ? null : normalizeFingerprint(fingerprint);
+        }
+
+        /**
+         * @param certificate the certificate of the server
+         *
+         * @return true if the certificate has the verified fingerprint (or if unsafe)
+         */
+        boolean isTrusted(Certificate certificate)
+        {
+            if (unsafe) {
+                return true;
+            }
+            if (certificate == null) {
+                return false;
+            }
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-1").digest(certificate.getEncoded());
+                StringBuilder serverFingerprint = new StringBuilder(digest.length * 2);
+                for (byte b : digest) {
+                    serverFingerprint.append(String.format("%02X", b));
+                }
+                return fingerprint.equals(serverFingerprint.toString());
+            }
+            catch (GeneralSecurityException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException
+        {
+            if (!isTrusted(chain == null || chain.length == 0 ? null : chain[0])) {
+                throw new CertificateException("The certificate of the server doesn't match the verified fingerprint");
+            }
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException
+        {
+            throw new CertificateException("Client certificates aren't verified");
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers()
+        {
+            return new X509Certificate[0];
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.checkpoint.mgmt_api.examples;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class measures the phases of a run (login, session handling, gateways, the layers of every package etc.),
+ * so the runs can be compared phase by phase. Every phase records its wall-clock time and the CPU time of the tool
+ * during the phase (all of its threads, e.g. the threads of the api calls), a phase which runs several times
+ * (e.g. for every package) accumulates its times.
+ * The phases of the packages may run at the same time (see --package-concurrency), their CPU times overlap then.
+ */
+class RunPhases
+{
+    private final Map<String, PhaseTime> phases = new LinkedHashMap<>();
+
+    /**
+     * This function starts measuring a phase of the run, it's measured until the returned phase is closed
+     *
+     * @param name the name of the phase
+     * @return the phase
+     */
+    Phase start(String name)
+    {
+        return start(name, null);
+    }
+
+    /**
+     * This function starts measuring a phase of a package, it's measured until the returned phase is closed
+     *
+     * @param name the name of the phase
+     * @param packageName the name of the package
+     * @return the phase
+     */
+    Phase start(String name, String packageName)
+    {
+        return new Phase(name, packageName);
+    }
+
+    /**
+     * @return the phases which were measured, in the order they were first completed
+     */
+    synchronized JSONArray toJson()
+    {
+        JSONArray json = new JSONArray();
+        for (PhaseTime phase : phases.values()) {
+            JSONObject phaseJson = new JSONObject();
+            phaseJson.put("phase", phase.name);
+            if (phase.packageName != null) {
+                phaseJson.put("package", phase.packageName);
+            }
+            phaseJson.put("wall-ms", phase.wallNanos / 1000000);
+            phaseJson.put("cpu-ms", phase.cpuNanos / 1000000);
+            if (phase.count > 1) {
+                phaseJson.put("count", phase.count);
+            }
+            json.add(phaseJson);
+        }
+        return json;
+    }
+
+    /**
+     * @return a line per phase with its wall-clock and CPU time
+     */
+    synchronized String summaryToString()
+    {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%-50s %12s %12s", "phase", "wall (s)", "cpu (s)"));
+        for (PhaseTime phase : phases.values()) {
+            String name = phase.packageName == null ? phase.name : phase.name + " ('" + phase.packageName + "')";
+            summary.append(System.lineSeparator())
+                   .append(String.format("%-50s %12.2f %12.2f", name, phase.wallNanos / 1e9, phase.cpuNanos / 1e9));
+        }
+        return summary.toString();
+    }
+
+    private synchronized void add(String name, String packageName, long wallNanos, long cpuNanos)
+    {
+        String key = packageName == null ? name : name + '\0' + packageName;
+        PhaseTime phase = phases.get(key);
+        if (phase == null) {
+            phase = new PhaseTime(name, packageName);
+            phases.put(key, phase);
+        }
+        phase.wallNanos += wallNanos;
+        phase.cpuNanos  += Math.max(0, cpuNanos);
+        phase.count++;
+    }
+
+    /**
+     * @return the CPU time of the tool (all of its threads), or of the current thread if the JVM doesn't provide it
+     */
+    private static long cpuTime()
+    {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            long cpuTime = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+            if (cpuTime >= 0) {
+                return cpuTime;
+            }
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * A phase which is being measured
+     */
+    class Phase implements AutoCloseable
+    {
+        private final String name;
+        private final String packageName;
+        //The first reading of the CPU time is slow, it's taken before the wall-clock time
+        private final long startCpu = cpuTime();
+        private final long startWall = System.nanoTime();
+        private boolean closed = false;
+
+        private Phase(String name, String packageName)
+        {
+            this.name        = name;
+            this.packageName = packageName;
+        }
+
+        /**
+         * This function ends the phase and records its times, closing it again does nothing
+         */
+        @Override
+        public void close()
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            add(name, packageName, System.nanoTime() - startWall, cpuTime() - startCpu);
+        }
+    }
+
+    /**
+     * The accumulated times of a phase
+     */
+    private static class PhaseTime
+    {
+        private final String name;
+        private final String packageName;
+        private long wallNanos;
+        private long cpuNanos;
+        private int count;
+
+        PhaseTime(String name, String packageName)
+        {
+            this.name        = name;
+            this.packageName = packageName;
+        }
+    }
+}
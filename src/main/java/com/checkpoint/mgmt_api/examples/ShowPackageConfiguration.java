@@ -8,13 +8,13 @@ import org.json.simple.JSONObject;
 import java.io.Console;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
@@ -31,9 +31,10 @@ public enum ShowPackageConfiguration {
     private static final String TAR_SUFFIX       = ".tar.gz";
     private static final String LOG_SUFFIX       = ".elg";
     private static final String PREFIX           = "show_package-";
-    //Temp file Names for the data
-    private static final String OBJECTS_FILE     = "objects.txt";
-    private static final String RULEBASE_FILE    = "rulebase.txt";
+    //Temp file Names for the data (a suffix is added per package)
+    private static final String OBJECTS_FILE     = "objects";
+    private static final String RULEBASE_FILE    = "rulebase";
+    private static final String TEMP_FILE_SUFFIX = ".txt";
     /*Management server IP address*/
     private static String server                 = ApiClient.LOCAL_SERVER_IP;
     private static String cloudMgmtId            = null;
@@ -69,14 +70,49 @@ public enum ShowPackageConfiguration {
     private static Integer queryLimit            = null;
 
     private static final int DEFAULT_QUERY_LIMIT = 10;
+
+    /*Ceiling of the management api calls that run at the same time*/
+    private static Integer maxConcurrentCalls    = null;
+    private static final int DEFAULT_MAX_CONCURRENT_CALLS = 8;
+    private static final int MAX_CONCURRENT_CALLS_LIMIT   = 64;
+
+    /*Number of 'show-objects' chunks of nested objects that are requested at the same time*/
+    private static Integer maxNestedObjectChunks = null;
+    private static final int DEFAULT_MAX_NESTED_OBJECT_CHUNKS = 4;
+
+    /*Number of policy packages that are exported at the same time*/
+    private static Integer packageConcurrency    = null;
+    private static final int DEFAULT_PACKAGE_CONCURRENCY = 1;
+
+    /*Directory of the objects which are kept between runs (disabled if null)*/
+    private static String objectsCacheDir        = null;
+
+    /*Result folder of a previous run whose unchanged layers are reused (disabled if null)*/
+    private static String incrementalFrom        = null;
+
+    /*Compression of the tar.gz file*/
+    private static Integer compressionLevel      = null;
+    private static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    private static Integer compressionThreads    = null;
+    /*A single thread keeps the single stream gzip compression*/
+    private static final int DEFAULT_COMPRESSION_THREADS = 1;
+    private static final int MAX_COMPRESSION_THREADS     = 32;
+    /*Define if the files are added to the tar file during the run*/
+    private static boolean streamTarGz           = false;
+
+    /*Define if the rulebase pages share the uid to name dictionary of the package instead of inlining it*/
+    private static boolean sharedUidToName       = false;
+
+    /*Number of rows in a chunk of a rulebase page (the rows aren't split if null)*/
+    private static Integer layerChunkSize        = null;
+    private static final int MIN_LAYER_CHUNK_SIZE = 100;
+    private static final int MAX_LAYER_CHUNK_SIZE = 100000;
     private static Boolean showMembership        = null;
 
     private static Boolean dereferenceGroupMembers = null;
     private List<String> installedPackages       = new ArrayList<>();
-    private static Map<String, String> uidToName = new HashMap<>();
-    private static Queue<String> nestedObjectsToRetrieve = new LinkedList<>();
     List<GatewayAndServer> gatewaysWithPolicy    = new ArrayList<>();
-    private static Set<String> knownInlineLayers = new HashSet<>();
+    private static Set<String> knownInlineLayers = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     private static String publishedSessionUid;
 
     // Indicates whether to show Access/Threat/NAT/HTTPS policy as part of policy package. Default is true.
@@ -100,11 +136,15 @@ public enum ShowPackageConfiguration {
     private static boolean showPackagesList = false;
     private static String proxy             = "";
     private HtmlUtils htmlUtil              = HtmlUtils.INSTANCE;
-    private static RandomAccessFile objectsWriter;
+    /*The objects which were retrieved during the run, shared by all the packages*/
+    private final ObjectsCache objectsCache = new ObjectsCache();
 
     private static boolean showEachRulesUid = false;
 
-    private static RandomAccessFile rulbaseWriter;
+    /*The contexts of the packages which are being exported, each one holds its own temp files*/
+    private static final Set<PackageContext> openPackageContexts =
+            Collections.newSetFromMap(new ConcurrentHashMap<PackageContext, Boolean>());
+    private static final AtomicInteger packageContextsCounter = new AtomicInteger();
 
 
     public static String getTlsVersion() {
@@ -128,31 +168,61 @@ public enum ShowPackageConfiguration {
 
         //Load html templates
         htmlUtil.readTemplatesFromClassPath();
+        htmlUtil.setSharedUidToName(sharedUidToName);
+        htmlUtil.setLayerChunkSize(getLayerChunkSize());
 
         //Set directory path
         setTarPath();
         configureLogFile(debugString);
-        //Set the writer to the temps file
-        setTempFilesWriter();
     }
 
     /**
-     * This function open write access to the temps files
+     * This function creates the context of a package and opens write access to its temps files
+     *
+     * @param packageName the package's name
+     *
+     * @return the {@link PackageContext}
      * @throws IOException In case the write access denied
      */
-    void setTempFilesWriter() throws IOException
+    PackageContext createPackageContext(String packageName) throws IOException
     {
-        //Open write access to the temp file of the objects
-      objectsWriter = new RandomAccessFile(new File(resultFolderPath + System.getProperty("file.separator") +
-                                                                OBJECTS_FILE), "rw");
-
-      objectsWriter.writeBytes("[");
+        String suffix = "-" + packageContextsCounter.incrementAndGet() + TEMP_FILE_SUFFIX;
+        PackageContext context = new PackageContext(packageName,
+                resultFolderPath + System.getProperty("file.separator") + OBJECTS_FILE + suffix,
+                resultFolderPath + System.getProperty("file.separator") + RULEBASE_FILE + suffix);
+        openPackageContexts.add(context);
+        return context;
+    }
 
-        //Open write access to the temp file of the rulebase
-      rulbaseWriter = new RandomAccessFile(new File(resultFolderPath + System.getProperty("file.separator") +
-                                                                RULEBASE_FILE), "rw");
+    /**
+     * This function creates the context of an inline layer of a given package, with a rulebase temp file of its own
+     *
+     * @param packageContext the {@link PackageContext} of the package
+     * @param inlineLayersTracker the tracker of the inline layers which are exported concurrently
+     *
+     * @return the {@link PackageContext} of the inline layer
+     * @throws IOException In case the write access denied
+     */
+    PackageContext createInlineLayerContext(PackageContext packageContext, InlineLayersTracker inlineLayersTracker)
+            throws IOException
+    {
+        String suffix = "-" + packageContextsCounter.incrementAndGet() + TEMP_FILE_SUFFIX;
+        PackageContext context = packageContext.createInlineLayerContext(
+                resultFolderPath + System.getProperty("file.separator") + RULEBASE_FILE + suffix, inlineLayersTracker);
+        openPackageContexts.add(context);
+        return context;
+    }
 
-      rulbaseWriter.writeBytes("[");
+    /**
+     * This function closes and deletes the temp files of a given package
+     *
+     * @param context the {@link PackageContext} of the package
+     * @return true on success, otherwise false.
+     */
+    boolean closePackageContext(PackageContext context)
+    {
+        openPackageContexts.remove(context);
+        return context.close();
     }
 
     /**
@@ -347,20 +417,11 @@ public enum ShowPackageConfiguration {
      * @return true on success, otherwise false.
      */
     boolean closeAndDeleteFile(){
-        try {
-            if (objectsWriter != null) {
-                objectsWriter.close();
-                Files.delete(Paths.get(resultFolderPath +  System.getProperty("file.separator") + OBJECTS_FILE));
-            }
-            if (rulbaseWriter != null) {
-                rulbaseWriter.close();
-                Files.delete(Paths.get(resultFolderPath +  System.getProperty("file.separator") + RULEBASE_FILE));
-            }
+        boolean result = true;
+        for (PackageContext context : new ArrayList<>(openPackageContexts)) {
+            result &= closePackageContext(context);
         }
-        catch (IOException e) {
-            return false;
-        }
-        return true;
+        return result;
     }
 
     /**
@@ -441,16 +502,6 @@ public enum ShowPackageConfiguration {
         return userRequestGateway;
     }
 
-    Map<String, String> getUidToName()
-    {
-        return uidToName;
-    }
-
-    Queue<String> getNestedObjectsToRetrieve()
-    {
-        return nestedObjectsToRetrieve;
-    }
-
     String getTarGzPath()
     {
         return tarGzPath;
@@ -471,16 +522,6 @@ public enum ShowPackageConfiguration {
         return password;
     }
 
-    RandomAccessFile getObjectsWriter()
-    {
-        return objectsWriter;
-    }
-
-    RandomAccessFile getRulbaseWriter()
-    {
-        return rulbaseWriter;
-    }
-
     List<String> getInstalledPackages()
     {
         return installedPackages;
@@ -520,6 +561,10 @@ public enum ShowPackageConfiguration {
         return htmlUtil;
     }
 
+    ObjectsCache getObjectsCache(){
+        return objectsCache;
+    }
+
     List<GatewayAndServer> getGatewaysWithPolicy(){
         return gatewaysWithPolicy;
     }
@@ -528,9 +573,15 @@ public enum ShowPackageConfiguration {
         gatewaysWithPolicy.add(gateway);
     }
 
-    public void setKnownInlineLayers(String knownInlineLayer)
+    /**
+     * This function marks a given inline layer as known (its html page is created once).
+     *
+     * @param knownInlineLayer the uid of the inline layer
+     * @return true if the inline layer wasn't known before
+     */
+    public boolean addKnownInlineLayer(String knownInlineLayer)
     {
-        knownInlineLayers.add(knownInlineLayer);
+        return knownInlineLayers.add(knownInlineLayer);
     }
 
     public boolean isKnownInlineLayer(String knownInlineLayer){
@@ -552,6 +603,56 @@ public enum ShowPackageConfiguration {
         return queryLimit == null ? DEFAULT_QUERY_LIMIT : queryLimit;
     }
 
+    public int getMaxConcurrentCalls()
+    {
+        return maxConcurrentCalls == null ? DEFAULT_MAX_CONCURRENT_CALLS : maxConcurrentCalls;
+    }
+
+    public int getMaxNestedObjectChunks()
+    {
+        return maxNestedObjectChunks == null ? DEFAULT_MAX_NESTED_OBJECT_CHUNKS : maxNestedObjectChunks;
+    }
+
+    public int getPackageConcurrency()
+    {
+        return packageConcurrency == null ? DEFAULT_PACKAGE_CONCURRENCY : packageConcurrency;
+    }
+
+    String getObjectsCacheDir()
+    {
+        return objectsCacheDir;
+    }
+
+    String getIncrementalFrom()
+    {
+        return incrementalFrom;
+    }
+
+    public int getCompressionLevel()
+    {
+        return compressionLevel == null ? DEFAULT_COMPRESSION_LEVEL : compressionLevel;
+    }
+
+    public int getCompressionThreads()
+    {
+        return compressionThreads == null ? DEFAULT_COMPRESSION_THREADS : compressionThreads;
+    }
+
+    boolean isStreamTarGz()
+    {
+        return streamTarGz;
+    }
+
+    boolean isSharedUidToName()
+    {
+        return sharedUidToName;
+    }
+
+    int getLayerChunkSize()
+    {
+        return layerChunkSize == null ? 0 : layerChunkSize;
+    }
+
     public boolean showRulesHitCounts() { return showRulesHitCounts; }
 
     public Boolean getShowMembership() { return showMembership; }
@@ -923,6 +1024,316 @@ public enum ShowPackageConfiguration {
                 return " limit";
             }
         },
+        maxConcurrentCalls("--max-concurrent-calls") {
+            void runCommand(String value)
+            {
+                final Integer maxCalls;
+
+                try {
+                    maxCalls = Integer.valueOf(value);
+                    if (maxCalls < 1 || maxCalls > MAX_CONCURRENT_CALLS_LIMIT) {
+                        throw new IllegalArgumentException();
+                    }
+                }
+                catch (IllegalArgumentException e) {
+                    final String errorMessage = "The value of --max-concurrent-calls must be an integer in range from 1 to "
+                            + MAX_CONCURRENT_CALLS_LIMIT;
+                    System.out.println(errorMessage);
+                    throw new IllegalArgumentException(errorMessage);
+                }
+
+                ShowPackageConfiguration.maxConcurrentCalls = maxCalls;
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tThe maximum number of api calls that run at the same time." +
+                        "\n\tThe actual number of calls grows and shrinks according to the server's response times and errors" +
+                        "\n\tThe value must be in range from 1 to " + MAX_CONCURRENT_CALLS_LIMIT +
+                        "\n\tDefault {" + DEFAULT_MAX_CONCURRENT_CALLS + "}");
+            }
+            String debugString()
+            {
+                return "maxConcurrentCalls:(--max-concurrent-calls)=" + ShowPackageConfiguration.maxConcurrentCalls;
+            }
+            String value(){
+                return " max-calls";
+            }
+        },
+        maxNestedObjectChunks("--max-nested-object-chunks") {
+            void runCommand(String value)
+            {
+                final Integer maxChunks;
+
+                try {
+                    maxChunks = Integer.valueOf(value);
+                    if (maxChunks < 1 || maxChunks > MAX_CONCURRENT_CALLS_LIMIT) {
+                        throw new IllegalArgumentException();
+                    }
+                }
+                catch (IllegalArgumentException e) {
+                    final String errorMessage = "The value of --max-nested-object-chunks must be an integer in range from 1 to "
+                            + MAX_CONCURRENT_CALLS_LIMIT;
+                    System.out.println(errorMessage);
+                    throw new IllegalArgumentException(errorMessage);
+                }
+
+                ShowPackageConfiguration.maxNestedObjectChunks = maxChunks;
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tThe maximum number of nested objects chunks (of --query-limit objects) that are retrieved at the same time." +
+                        "\n\tThe value must be in range from 1 to " + MAX_CONCURRENT_CALLS_LIMIT +
+                        "\n\tDefault {" + DEFAULT_MAX_NESTED_OBJECT_CHUNKS + "}");
+            }
+            String debugString()
+            {
+                return "maxNestedObjectChunks:(--max-nested-object-chunks)=" + ShowPackageConfiguration.maxNestedObjectChunks;
+            }
+            String value(){
+                return " max-chunks";
+            }
+        },
+        packageConcurrency("--package-concurrency") {
+            void runCommand(String value)
+            {
+                final Integer concurrency;
+
+                try {
+                    concurrency = Integer.valueOf(value);
+                    if (concurrency < 1 || concurrency > MAX_CONCURRENT_CALLS_LIMIT) {
+                        throw new IllegalArgumentException();
+                    }
+                }
+                catch (IllegalArgumentException e) {
+                    final String errorMessage = "The value of --package-concurrency must be an integer in range from 1 to "
+                            + MAX_CONCURRENT_CALLS_LIMIT;
+                    System.out.println(errorMessage);
+                    throw new IllegalArgumentException(errorMessage);
+                }
+
+                ShowPackageConfiguration.packageConcurrency = concurrency;
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tThe maximum number of policy packages that are exported at the same time." +
+                        "\n\tEach package is exported with its own temp files and objects dictionary" +
+                        "\n\tThe value must be in range from 1 to " + MAX_CONCURRENT_CALLS_LIMIT +
+                        "\n\tDefault {" + DEFAULT_PACKAGE_CONCURRENCY + "}");
+            }
+            String debugString()
+            {
+                return "packageConcurrency:(--package-concurrency)=" + ShowPackageConfiguration.packageConcurrency;
+            }
+            String value(){
+                return " packages";
+            }
+        },
+        objectsCacheDirectory("--objects-cache-dir") {
+            void runCommand(String value)
+            {
+                objectsCacheDir = value;
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tObjects cache path.\n\tDirectory where the retrieved objects are kept between runs." +
+                                           "\n\tA cached object is reused if it wasn't modified since the published session it was cached from." +
+                                           "\n\tBy default no cache is used.");
+            }
+            String debugString()
+            {
+                return "objectsCacheDir:(--objects-cache-dir)=" + objectsCacheDir;
+            }
+
+            String value(){
+                return " path";
+            }
+        },
+        compressionLevelOption("--compression-level") {
+            void runCommand(String value)
+            {
+                final Integer level;
+
+                try {
+                    level = Integer.valueOf(value);
+                    if (level < 1 || level > 9) {
+                        throw new IllegalArgumentException();
+                    }
+                }
+                catch (IllegalArgumentException e) {
+                    final String errorMessage = "The value of --compression-level must be an integer in range from 1 to 9";
+                    System.out.println(errorMessage);
+                    throw new IllegalArgumentException(errorMessage);
+                }
+
+                ShowPackageConfiguration.compressionLevel = level;
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tThe gzip compression level of the tar.gz file, 1 is the fastest and 9 is the smallest." +
+                        "\n\tDefault {" + DEFAULT_COMPRESSION_LEVEL + "}");
+            }
+            String debugString()
+            {
+                return "compressionLevel:(--compression-level)=" + ShowPackageConfiguration.compressionLevel;
+            }
+            String value(){
+                return " level";
+            }
+        },
+        compressionThreadsOption("--compression-threads") {
+            void runCommand(String value)
+            {
+                final Integer threads;
+
+                try {
+                    threads = Integer.valueOf(value);
+                    if (threads < 1 || threads > MAX_COMPRESSION_THREADS) {
+                        throw new IllegalArgumentException();
+                    }
+                }
+                catch (IllegalArgumentException e) {
+                    final String errorMessage = "The value of --compression-threads must be an integer in range from 1 to "
+                            + MAX_COMPRESSION_THREADS;
+                    System.out.println(errorMessage);
+                    throw new IllegalArgumentException(errorMessage);
+                }
+
+                ShowPackageConfiguration.compressionThreads = threads;
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tThe number of threads which compress the tar.gz file." +
+                        "\n\tWith more than one thread the file is compressed in blocks, which standard gzip tools read as usual" +
+                        "\n\tThe value must be in range from 1 to " + MAX_COMPRESSION_THREADS +
+                        "\n\tDefault {" + DEFAULT_COMPRESSION_THREADS + "}");
+            }
+            String debugString()
+            {
+                return "compressionThreads:(--compression-threads)=" + ShowPackageConfiguration.compressionThreads;
+            }
+            String value(){
+                return " threads";
+            }
+        },
+        incrementalExport("--incremental-from") {
+            void runCommand(String value)
+            {
+                incrementalFrom = value;
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tPrevious result folder (kept with -r)." +
+                                           "\n\tThe layers which didn't change since the previous result are copied from it instead of being created." +
+                                           "\n\tBy default all the layers are created.");
+            }
+            String debugString()
+            {
+                return "incrementalFrom:(--incremental-from)=" + incrementalFrom;
+            }
+
+            String value(){
+                return " path";
+            }
+        },
+        streamTarGzOption("--stream-tar-gz") {
+            void runCommand(String value)
+            {
+                if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                    final String errorMessage = "The value of --stream-tar-gz is invalid (must be true or false)";
+                    System.out.println(errorMessage);
+                    throw new IllegalArgumentException(errorMessage);
+                }
+
+                ShowPackageConfiguration.streamTarGz = Boolean.parseBoolean(value);
+            }
+
+            String value(){
+                return " (true|false)";
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tWhether to add every file to the tar file once it's complete, instead of packing the result folder at the end." +
+                        "\n\tThe files are deleted once added, unless -r is used" +
+                        "\n\tDefault {false}");
+            }
+
+            String debugString()
+            {
+                return "streamTarGz:(--stream-tar-gz)=" + ShowPackageConfiguration.streamTarGz;
+            }
+        },
+        sharedUidToNameOption("--shared-uid-to-name") {
+            void runCommand(String value)
+            {
+                if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                    final String errorMessage = "The value of --shared-uid-to-name is invalid (must be true or false)";
+                    System.out.println(errorMessage);
+                    throw new IllegalArgumentException(errorMessage);
+                }
+
+                ShowPackageConfiguration.sharedUidToName = Boolean.parseBoolean(value);
+            }
+
+            String value(){
+                return " (true|false)";
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tWhether the rulebase pages of a package load the names of the objects from a single shared script," +
+                        "\n\tinstead of having the names inlined in every page" +
+                        "\n\tDefault {false}");
+            }
+
+            String debugString()
+            {
+                return "sharedUidToName:(--shared-uid-to-name)=" + ShowPackageConfiguration.sharedUidToName;
+            }
+        },
+        layerChunkSizeOption("--layer-chunk-size") {
+            void runCommand(String value)
+            {
+                final Integer chunkSize;
+
+                try {
+                    chunkSize = Integer.valueOf(value);
+                    if (chunkSize < MIN_LAYER_CHUNK_SIZE || chunkSize > MAX_LAYER_CHUNK_SIZE) {
+                        throw new IllegalArgumentException();
+                    }
+                }
+                catch (IllegalArgumentException e) {
+                    final String errorMessage = "The value of --layer-chunk-size must be an integer in range from "
+                            + MIN_LAYER_CHUNK_SIZE + " to " + MAX_LAYER_CHUNK_SIZE;
+                    System.out.println(errorMessage);
+                    throw new IllegalArgumentException(errorMessage);
+                }
+
+                ShowPackageConfiguration.layerChunkSize = chunkSize;
+            }
+
+            void flagToString()
+            {
+                System.out.println("\tThe number of rules in a page of a large rulebase." +
+                        "\n\tThe rules of a larger rulebase are written into chunk files which the rulebase page loads one page at a time" +
+                        "\n\tThe value must be in range from " + MIN_LAYER_CHUNK_SIZE + " to " + MAX_LAYER_CHUNK_SIZE +
+                        "\n\tBy default all the rules are written into the rulebase page.");
+            }
+            String debugString()
+            {
+                return "layerChunkSize:(--layer-chunk-size)=" + ShowPackageConfiguration.layerChunkSize;
+            }
+            String value(){
+                return " rules";
+            }
+        },
         showMembershipOption("--show-membership") {
             void runCommand(String value)
             {
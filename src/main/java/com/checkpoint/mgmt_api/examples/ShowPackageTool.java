@@ -19,20 +19,30 @@ package com.checkpoint.mgmt_api.examples;
 
 import com.checkpoint.mgmt_api.client.*;
 import com.checkpoint.mgmt_api.objects.*;
+import com.checkpoint.mgmt_api.utils.DaemonThreadFactory;
+import com.checkpoint.mgmt_api.utils.JsonArrayWriter;
+import com.checkpoint.mgmt_api.utils.JsonStreamReader;
+import com.checkpoint.mgmt_api.utils.StreamingTarGZ;
 import com.checkpoint.mgmt_api.utils.TarGZUtils;
+import com.checkpoint.mgmt_api.utils.UidDictionary;
+import com.checkpoint.mgmt_api.utils.UidUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
 import com.checkpoint.mgmt_api.utils.FileNameUtils;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Handler;
 
 /**
@@ -53,12 +63,40 @@ public class ShowPackageTool {
     private static ShowPackageConfiguration configuration = ShowPackageConfiguration.INSTANCE;
     private static ApiClient client;
     private static ApiLoginResponse loginResponse;
-    private static JSONObject allTypes = null;
-
-    private static final int NUMBER_OF_EXECUTORS = 2;
-
-    private static final String TYPE      = "type";
-    private static final String UNDEFINED = "undefined";
+    //Reads the raw responses of the pages of the rulebases and of the nested objects, null if they can't be read
+    private static RawApiClient rawApiClient;
+    private static ApiCallScheduler apiCallScheduler;
+    //The calls, latency and size of the responses of every command, see metrics.json
+    private static final ApiMetrics apiMetrics = new ApiMetrics();
+    //The wall-clock and CPU time of the phases of the run, and the progress which is reported during the run
+    private static final RunPhases runPhases = new RunPhases();
+    private static final ExportProgress exportProgress = new ExportProgress();
+
+    //Server version to whether 'show-threat-rule-exception-rulebase' identifies the threat layer by name (and not by uid)
+    private static final Map<String, Boolean> threatExceptionLayerByName = new ConcurrentHashMap<>();
+    //The manifest of the result folder, and the manifest of the previous result with the uids changed since it
+    private static final ExportManifest exportManifest = new ExportManifest();
+    //Pool of the inline layers which are exported concurrently, and the details of the inline layers by uid
+    private static ExecutorService inlineLayersExecutor;
+    private static final ConcurrentHashMap<String, FutureTask<Layer>> inlineLayersByUid = new ConcurrentHashMap<>();
+    //The inline layers which couldn't be retrieved, retrieving one of them again is counted as a retry
+    private static final Set<String> failedInlineLayerUids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private static ExportManifest previousExport = null;
+    private static Set<String> previousExportChangedUids = Collections.emptySet();
+    //The tar file which is built during the run (see --stream-tar-gz), null if it's created at the end
+    private static StreamingTarGZ streamingTarGZ = null;
+
+    //Number of pages fetched ahead for each allowed concurrent call
+    private static final int PAGES_WINDOW_PER_CALL = 2;
+    //Seconds between the progress reports
+    private static final int PROGRESS_REPORT_SECONDS = 10;
+    //The number of times a page or a chunk of nested objects is requested again after a server or connection error
+    private static final int STREAMED_CALL_RETRIES = 1;
+    private static final int HTTP_SERVER_ERROR = 500;
+    //Hours to wait for a chunk of nested objects, like for the pages of a rulebase
+    private static final long NESTED_OBJECTS_CHUNK_TIMEOUT_HOURS = 3;
+    //Seconds between the checks of the chunks of nested objects which didn't complete
+    private static final long NESTED_OBJECTS_POLL_SECONDS = 5;
 
     //Types of rules
     private static String[] accessTypes = {"access-section", "access-rule", "place-holder"};
@@ -106,6 +144,11 @@ public class ShowPackageTool {
             logoutReportAndExit(e.getMessage() != null ? e.getMessage() : e.getClass().getName(), MessageType.SEVERE, false);
         }
 
+        /*Build the tar file during the run, every file is added to it once it's complete*/
+        if (configuration.isStreamTarGz()) {
+            openStreamingTarFile();
+        }
+
         /*Prepare Api client settings*/
         ApiClientArgs apiClientArgs = new ApiClientArgs();
 
@@ -145,21 +188,28 @@ public class ShowPackageTool {
         configuration.getLogger().debug("Login As root: " + loginAsRoot);
 
         /*Login to the Check Point Management server*/
+        RunPhases.Phase loginPhase = runPhases.start("login");
         if (!loginAsRoot) {
+            long loginStart = System.nanoTime();
             try {
                 loginResponse = client.login(configuration.getServer(), configuration.createPayloadForLogin(false), configuration.getCloudMgmtId());
             }
             catch (ApiClientException e) {
+                apiMetrics.record("login", System.nanoTime() - loginStart, null);
                 logoutReportAndExit("An error occurred while logging in to the server. Exception: "+ e.getMessage(), MessageType.SEVERE);
             }
+            apiMetrics.record("login", System.nanoTime() - loginStart, loginResponse);
         }
         else {
             //Login as root
+            long loginStart = System.nanoTime();
             try {
                 loginResponse = client.loginAsRoot(configuration.createPayloadForLogin(true));
             }catch (ApiClientRunTimeException e){
+                apiMetrics.record("login", System.nanoTime() - loginStart, null);
                 logoutReportAndExit("An error occurred while logging in to the server "+ e.getMessage(), MessageType.SEVERE);
             }
+            apiMetrics.record("login", System.nanoTime() - loginStart, loginResponse);
         }
         if(loginResponse == null){
             logoutReportAndExit("An error occurred while logging in to the server", MessageType.SEVERE);
@@ -168,28 +218,67 @@ public class ShowPackageTool {
             logoutReportAndExit("An error occurred while logging in to the server. "
                                   + errorResponseToString(loginResponse) , MessageType.SEVERE);
         }
+        loginPhase.close();
 
         writeTheVersionsToTheLogger();
 
         configuration.getLogger().debug("Chosen server IP: " + loginResponse.getServerIP());
         configuration.getLogger().debug("Login response: " + loginResponse.getPayload());
 
+        /*Shared scheduler of the api calls, it adapts the number of concurrent calls to the server's responsiveness*/
+        apiCallScheduler = new ApiCallScheduler(configuration.getMaxConcurrentCalls());
+        configuration.getLogger().debug("Maximum number of concurrent api calls: " + configuration.getMaxConcurrentCalls());
+        inlineLayersExecutor = Executors.newFixedThreadPool(configuration.getMaxConcurrentCalls(),
+                                                            new DaemonThreadFactory("inline-layer-"));
+
+        /*The pages of the rulebases and the nested objects are read from their raw responses, one element at a time*/
+        rawApiClient = createRawApiClient();
+
+        /*Report the progress periodically, so a long export doesn't look hung*/
+        exportProgress.start(PROGRESS_REPORT_SECONDS, TimeUnit.SECONDS, configuration.getLogger());
+
         IndexView index = new IndexView();
 
-        handlePublishedSession(index);
+        try (RunPhases.Phase phase = runPhases.start("session")) {
+            handlePublishedSession(index);
+
+            /*The retrieved objects are cached only if they're needed again (by the next runs or packages)*/
+            if (configuration.getObjectsCacheDir() != null || configuration.getIncrementalFrom() != null) {
+                configuration.getObjectsCache().enable();
+            }
+
+            /*Reuse the objects which were cached by previous runs and weren't modified since*/
+            loadObjectsCache(index.getSession());
+
+            /*Reuse the layers of a previous result which weren't modified since*/
+            loadPreviousExport(index.getSession());
+        }
 
          /*Update the index page data*/
         index.setDomain(configuration.getDomain());
 
         /*Show all gateways and servers*/
-        collectGatewaysInUseAndInstalledPolicies();
+        try (RunPhases.Phase phase = runPhases.start("gateways")) {
+            collectGatewaysInUseAndInstalledPolicies();
+        }
 
-        JSONArray objectsCollection = showVpnCommunities();
+        JSONArray objectsCollection;
+        try (RunPhases.Phase phase = runPhases.start("vpn-communities")) {
+            objectsCollection = showVpnCommunities();
+        }
 
         /*Prepare the packages for show*/
-        showPackages(index, objectsCollection);
+        try (RunPhases.Phase phase = runPhases.start("packages")) {
+            showPackages(index, objectsCollection);
+        }
+
+        saveObjectsCache(index.getSession());
+        saveExportManifest();
 
         /*Build the index page and create the tar file*/
+        exportProgress.stop();
+        configuration.getLogger().info("Run phases:" + System.lineSeparator() + runPhases.summaryToString());
+        index.setPhases(runPhases.toJson());
         buildIndexHtmlPage(index);
 
         /*Create tar file, free the handlers and deletes temps files */
@@ -204,7 +293,7 @@ public class ShowPackageTool {
 
         //get last published session
         try {
-            sessionRes = client.apiCall(loginResponse, "show-last-published-session", "{}");
+            sessionRes = apiCall("show-last-published-session", "{}");
         }
         catch (ApiClientException e) {
             logoutReportAndExit("Failed to show last published session. Exception: "+ e.getMessage(), MessageType.SEVERE);
@@ -242,7 +331,7 @@ public class ShowPackageTool {
             if (!session.getLastPublishedSession()) {
                 sessionPayload.put("uid", session.getUid());
                 try {
-                    sessionRes = client.apiCall(loginResponse, "show-session", sessionPayload);
+                    sessionRes = apiCall("show-session", sessionPayload);
                 }
                 catch (ApiClientException e) {
                     logoutReportAndExit(
@@ -276,7 +365,7 @@ public class ShowPackageTool {
                 sessionPayload.clear();
                 sessionPayload.put("uid", session.getUid());
                 try {
-                    switchSessionRes = client.apiCall(loginResponse, "switch-session", sessionPayload);
+                    switchSessionRes = apiCall("switch-session", sessionPayload);
                 }
                 catch (ApiClientException e) {
                     logoutReportAndExit(
@@ -294,6 +383,245 @@ public class ShowPackageTool {
 
     }
 
+    /**
+     * This function seeds the objects cache with the objects which were stored by a previous run.
+     * If the objects were stored from another published session, only the objects which weren't changed between
+     * the sessions are used. If the changes can't be retrieved, or the objects were stored with other settings
+     * (see {@link #getExportSettings()}), nothing is used.
+     *
+     * @param session the published session of the current run
+     */
+    private static void loadObjectsCache(Session session)
+    {
+        if (configuration.getObjectsCacheDir() == null) {
+            return;
+        }
+        if (session == null || session.getUid() == null) {
+            configuration.getLogger().warning("No published session was found, the objects cache isn't used");
+            return;
+        }
+
+        ObjectsCacheFile cacheFile = new ObjectsCacheFile(configuration.getObjectsCacheDir(),
+                                                          configuration.getServer(), configuration.getDomain());
+        //The stored objects are streamed into the cache, the ones which changed since are removed afterwards
+        final ObjectsCache objectsCache = configuration.getObjectsCache();
+        try {
+            cacheFile.load(new JsonStreamReader.ElementHandler() {
+                @Override
+                public void element(Object object)
+                {
+                    objectsCache.put((JSONObject) object);
+                }
+            });
+        }
+        catch (Exception e) {
+            objectsCache.clear();
+            handleException(e, "Failed to read the objects cache '" + cacheFile.getPath() + "', ignoring it");
+            return;
+        }
+        if (cacheFile.getSessionUid() == null) {
+            objectsCache.clear();
+            configuration.getLogger().info("Objects cache '" + cacheFile.getPath() + "' is empty");
+            return;
+        }
+        if (!getExportSettings().equals(cacheFile.getSettings())) {
+            objectsCache.clear();
+            configuration.getLogger().warning("The objects cache '" + cacheFile.getPath() + "' was stored with other"
+                                                      + " settings (" + cacheFile.getSettings() + "), it isn't used");
+            return;
+        }
+
+        int cached = objectsCache.size();
+        if (!cacheFile.getSessionUid().equals(session.getUid())) {
+            Set<String> changedUids = showChangedUids(cacheFile.getSessionUid(), session.getUid());
+            if (changedUids == null) {
+                objectsCache.clear();
+                configuration.getLogger().warning("Failed to get the changes since session '" + cacheFile.getSessionUid()
+                                                          + "', the objects cache isn't used");
+                return;
+            }
+            for (String uid : changedUids) {
+                objectsCache.remove(uid);
+            }
+        }
+
+        configuration.getLogger().info("Objects cache: reusing " + objectsCache.size() + " of " + cached
+                                               + " object(s) cached from session '" + cacheFile.getSessionUid() + "'");
+    }
+
+    /**
+     * This function returns the uids which appear in the changes between two published sessions.
+     * Every uid in the response is taken (the changed objects, their layers and the objects they reference), it's
+     * better to retrieve an object which didn't change than to use an object which did.
+     *
+     * @param fromSession the uid of the first session
+     * @param toSession the uid of the last session
+     *
+     * @return the uids, or null in case of an error
+     */
+    private static Set<String> showChangedUids(String fromSession, String toSession)
+    {
+        JSONObject payload = new JSONObject();
+        payload.put("from-session", fromSession);
+        payload.put("to-session", toSession);
+
+        ApiResponse res = null;
+        try {
+            configuration.getLogger().debug("Run command: 'show-changes' with payload: " + payload.toJSONString());
+            res = apiCall("show-changes", payload);
+        }
+        catch (ApiClientException e) {
+            handleException(e, "Failed to run show-changes");
+            return null;
+        }
+        if (res == null || !res.isSuccess() || res.getPayload() == null) {
+            configuration.getLogger().warning("Failed to run show-changes. " + errorResponseToString(res));
+            return null;
+        }
+
+        Set<String> uids = new HashSet<>();
+        UidUtils.collectUids(res.getPayload(), uids);
+        configuration.getLogger().debug("Found " + uids.size() + " changed uid(s) since session '" + fromSession + "'");
+        return uids;
+    }
+
+    /**
+     * This function reads the manifest of the previous result (see --incremental-from) and the changes since its
+     * published session. The objects of the previous result which weren't changed are added to the objects cache.
+     * In case of a problem all the layers are created from scratch.
+     *
+     * @param session the published session of the current run
+     */
+    private static void loadPreviousExport(Session session)
+    {
+        exportManifest.setSettings(getExportSettings());
+        exportManifest.setSessionUid(session == null ? null : session.getUid());
+
+        String previousFolder = configuration.getIncrementalFrom();
+        if (previousFolder == null) {
+            return;
+        }
+        if (session == null || session.getUid() == null) {
+            configuration.getLogger().warning("No published session was found, creating all the layers");
+            return;
+        }
+        if (configuration.showRulesHitCounts()) {
+            configuration.getLogger().warning("Hit counts change without publishing, creating all the layers");
+            return;
+        }
+
+        ExportManifest manifest;
+        try {
+            manifest = ExportManifest.load(previousFolder);
+        }
+        catch (Exception e) {
+            handleException(e, "Failed to read the manifest of the previous result '" + previousFolder + "'");
+            return;
+        }
+        if (manifest == null || manifest.getSessionUid() == null) {
+            configuration.getLogger().warning("The previous result '" + previousFolder + "' doesn't have a manifest,"
+                                                      + " creating all the layers");
+            return;
+        }
+        if (!exportManifest.getSettings().equals(manifest.getSettings())) {
+            configuration.getLogger().warning("The previous result was created with other settings ("
+                                                      + manifest.getSettings() + "), creating all the layers");
+            return;
+        }
+
+        Set<String> changedUids = Collections.emptySet();
+        if (!manifest.getSessionUid().equals(session.getUid())) {
+            changedUids = showChangedUids(manifest.getSessionUid(), session.getUid());
+            if (changedUids == null) {
+                configuration.getLogger().warning("Failed to get the changes since session '" + manifest.getSessionUid()
+                                                          + "', creating all the layers");
+                return;
+            }
+        }
+
+        //Seed the cache with the objects of the previous result, so the objects of a reused layer aren't retrieved
+        final Set<String> unchangedFilter = changedUids;
+        final AtomicInteger reused = new AtomicInteger();
+        for (String objectsFile : manifest.getObjectsFiles()) {
+            try {
+                ExportManifest.readObjectsFile(previousFolder, objectsFile, new JsonStreamReader.ElementHandler() {
+                    @Override
+                    public void element(Object element)
+                    {
+                        JSONObject object = (JSONObject) element;
+                        Object uid = object.get("uid");
+                        if (uid != null && !unchangedFilter.contains(uid.toString())) {
+                            configuration.getObjectsCache().put(object);
+                            reused.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            catch (Exception e) {
+                configuration.getLogger().warning("Failed to read the objects of the previous result '" + objectsFile
+                                                          + "'. " + e.getMessage());
+            }
+        }
+
+        previousExport = manifest;
+        previousExportChangedUids = changedUids;
+        configuration.getLogger().info("Incremental export from '" + previousFolder + "' (session '"
+                                               + manifest.getSessionUid() + "'), " + changedUids.size()
+                                               + " changed uid(s), " + reused + " object(s) reused");
+    }
+
+    /**
+     * This function returns the settings which affect the content of the layers' files.
+     * A previous result (or the objects cache) can be reused only if it was created with the same settings.
+     *
+     * @return the settings as string
+     */
+    private static String getExportSettings()
+    {
+        return "api-version=" + loginResponse.getApiVersion() + ",show-rule-uid=" + configuration.showRuleUidFlag()
+                + ",show-hits=" + configuration.showRulesHitCounts()
+                + ",show-membership=" + configuration.getShowMembership()
+                + ",dereference-group-members=" + configuration.getDereferenceGroupMembers()
+                + ",shared-uid-to-name=" + configuration.isSharedUidToName()
+                + ",layer-chunk-size=" + configuration.getLayerChunkSize();
+    }
+
+    /**
+     * This function writes the manifest of the result folder, so the next run can reuse its layers.
+     */
+    private static void saveExportManifest()
+    {
+        try {
+            exportManifest.save(configuration.getResultFolderPath());
+        }
+        catch (IOException e) {
+            handleException(e, "Failed to write the manifest of the result");
+        }
+    }
+
+    /**
+     * This function stores the objects which were retrieved during the run, tagged with the published session.
+     *
+     * @param session the published session of the current run
+     */
+    private static void saveObjectsCache(Session session)
+    {
+        if (configuration.getObjectsCacheDir() == null || session == null || session.getUid() == null) {
+            return;
+        }
+
+        ObjectsCacheFile cacheFile = new ObjectsCacheFile(configuration.getObjectsCacheDir(),
+                                                          configuration.getServer(), configuration.getDomain());
+        try {
+            cacheFile.save(session.getUid(), getExportSettings(), configuration.getObjectsCache().getObjects());
+            configuration.getLogger().info("Stored " + configuration.getObjectsCache().size()
+                                                   + " object(s) in the objects cache '" + cacheFile.getPath() + "'");
+        }
+        catch (IOException e) {
+            handleException(e, "Failed to write the objects cache '" + cacheFile.getPath() + "'");
+        }
+    }
+
     /**
      * This function check if to login as root or with user name and password
      * @return True if the login is as root
@@ -362,7 +690,7 @@ public class ShowPackageTool {
         ApiResponse res = null;
         try {
             configuration.getLogger().debug("Run command: 'show-gateways-and-servers' with details level 'full'");
-            res = client.apiQuery(loginResponse, "show-gateways-and-servers", "objects", "{\"details-level\" : \"full\"}");
+            res = apiQuery("show-gateways-and-servers", "objects", "{\"details-level\" : \"full\"}");
         }
         catch (ApiClientException e) {
             logoutReportAndExit("Failed to run gateways-and-servers command." + e.getMessage(), MessageType.SEVERE);
@@ -415,7 +743,7 @@ public class ShowPackageTool {
         for (String command : commands) {
             try {
                 configuration.getLogger().debug("Run command: '" + command + "' with details level 'full'");
-                res = client.apiQuery(loginResponse,command, "objects", "{\"details-level\" : \"full\"}");
+                res = apiQuery(command, "objects", "{\"details-level\" : \"full\"}");
             }
             catch (ApiClientException e) {
                 configuration.getLogger().warning("Failed to execute command: " +command + ". Exception: " + e.getMessage());
@@ -478,10 +806,9 @@ public class ShowPackageTool {
                 configuration.getLogger().info("More then one package exists," +
                         " show all packages that are installed on a gateway");
                 //More then one package exists, show all packages that are installed on a gateway
-                for (String packageName : configuration.getInstalledPackages()) {
-                    policy = buildPackagePolicy(packageName, objectsInUse);
-                    if (policy != null) {
-                        index.getPolicyPackages().add(policy);
+                for (PolicyPackage installedPolicy : buildPackagePolicies(configuration.getInstalledPackages(), objectsInUse)) {
+                    if (installedPolicy != null) {
+                        index.getPolicyPackages().add(installedPolicy);
                     }
                 }
             }
@@ -518,7 +845,7 @@ public class ShowPackageTool {
         //Get all existing packages
         try {
             configuration.getLogger().debug("Run command: 'show-packages' with details level 'full'");
-            res = client.apiQuery(loginResponse,"show-packages","packages", "{\"details-level\" : \"full\"}");
+            res = apiQuery("show-packages","packages", "{\"details-level\" : \"full\"}");
 
         }//In case of an error
         catch (ApiClientException e) {
@@ -555,6 +882,66 @@ public class ShowPackageTool {
         logoutReportAndExit(null, MessageType.EXIT_WITHOUT_MESSAGE);
     }
 
+    /**
+     * This function collects information (layers and objects) about the given packages.
+     * Up to --package-concurrency packages are collected at the same time, each one in its own {@link PackageContext}.
+     *
+     * @param packageNames the names of the packages to collect the information about.
+     * @param objectsInUse the objects that were already collected
+     *
+     * @return the {@link PolicyPackage}s in the order of the given names (null for a package which failed)
+     */
+    private static List<PolicyPackage> buildPackagePolicies(List<String> packageNames, final JSONArray objectsInUse) {
+
+        //The objects which were retrieved by a package are taken from the cache by the next packages
+        if (packageNames.size() > 1) {
+            configuration.getObjectsCache().enable();
+        }
+
+        List<PolicyPackage> policyPackages = new ArrayList<>();
+        int packageConcurrency = Math.min(configuration.getPackageConcurrency(), packageNames.size());
+
+        if (packageConcurrency <= 1) {
+            for (String packageName : packageNames) {
+                policyPackages.add(buildPackagePolicy(packageName, objectsInUse));
+            }
+            return policyPackages;
+        }
+
+        configuration.getLogger().info("Exporting " + packageNames.size() + " packages, " + packageConcurrency
+                + " at a time");
+        final ExecutorService executorService = Executors.newFixedThreadPool(packageConcurrency);
+        List<Future<PolicyPackage>> futures = new ArrayList<>();
+        try {
+            for (final String packageName : packageNames) {
+                futures.add(executorService.submit(new Callable<PolicyPackage>() {
+                    @Override
+                    public PolicyPackage call()
+                    {
+                        return buildPackagePolicy(packageName, objectsInUse);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    policyPackages.add(futures.get(i).get());
+                }
+                catch (ExecutionException e) {
+                    handleException(e, "Error: failed while creating policy package: '" + packageNames.get(i) + "'");
+                    policyPackages.add(null);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            handleException(e, "Interrupted while creating policy packages");
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+        return policyPackages;
+    }
+
     /**
      * This function collects information (layers and objects) about a given package.
      *
@@ -570,21 +957,27 @@ public class ShowPackageTool {
         Layer natLayer;
         List<Layer> httpsLayers = new ArrayList<>();
         PolicyPackage policyPackage = null;
+        PackageContext context = null;
+        //The phase of the package which is being measured
+        RunPhases.Phase phase = null;
         try {
+            context = configuration.createPackageContext(packageName);
+
             //The vpn communities which were collected are common to all of the policy packages.
             //Clone these objects in order to include the vpn communities in all the packages.
-            addObjectsInfoIntoCollections(objectsInUse);
+            addObjectsInfoIntoCollections(context, objectsInUse);
 
             //Fill the layer and the layer's list with information about the package's layers.
             configuration.getLogger().debug("Starting to process layers of package '" + packageName + "'");
 
+            phase = runPhases.start("layers", packageName);
             natLayer = aggregatePackageLayers(packageName, accessLayers, threatLayers, httpsLayers);
 
             if(configuration.showAccessPolicyFlag()){
                 //Handle access layer
                 configuration.getLogger().debug("Handle access layers");
                 for (Layer accessLayer : accessLayers) {
-                    showAccessRulebase(accessLayer, packageName);
+                    showAccessRulebase(accessLayer, context);
                 }
             }
 
@@ -592,7 +985,7 @@ public class ShowPackageTool {
                 //Handle nat layer
                 if (natLayer != null) {
                     configuration.getLogger().debug("Handle nat layer");
-                    showNatRulebase(natLayer, packageName);
+                    showNatRulebase(natLayer, context);
                 }
             }
 
@@ -600,7 +993,7 @@ public class ShowPackageTool {
                 //Handle threat layers
                 configuration.getLogger().debug("Handle threat layers");
                 for (Layer threatLayer : threatLayers) {
-                    showThreatRulebase(packageName, threatLayer);
+                    showThreatRulebase(context, threatLayer);
                 }
             }
 
@@ -608,21 +1001,91 @@ public class ShowPackageTool {
                 //Handle https layers
                 configuration.getLogger().debug("Handle https layers");
                 for (Layer httpsLayer : httpsLayers) {
-                    showHttpsRulebase(httpsLayer, packageName);
+                    showHttpsRulebase(httpsLayer, context);
+                }
+            }
+            phase.close();
+
+            //Retrieve the objects which are referenced by other objects (e.g. group members)
+            phase = runPhases.start("nested-objects", packageName);
+            resolveNestedObjects(context);
+            phase.close();
+
+            phase = runPhases.start("objects-html", packageName);
+            //Crete a Html page that contains the objects of the package
+            writeDictionary(context);
+
+            //Create a policy package
+            policyPackage = new PolicyPackage(packageName, accessLayers, threatLayers, natLayer, httpsLayers,
+                                              context.getAllTypes());
+
+            //Handle gateways that the policy is install on
+            JSONArray gatewayObjects = new JSONArray();
+            for (GatewayAndServer gateway : configuration.getGatewaysWithPolicy()) {
+                //Add all the relevant gateways and servers for the current package
+                if (gateway.getAccessPolicy() != null && packageName.equalsIgnoreCase(gateway.getAccessPolicy()) ||
+                        gateway.getThreatPolicy() != null && packageName.equalsIgnoreCase(gateway.getThreatPolicy())) {
+                    gatewayObjects.add(gateway.getGatewayObject());
+                    policyPackage.setGatewayAndServer(gateway);
                 }
             }
 
-            final Queue<String> objectsQueue = configuration.getNestedObjectsToRetrieve();
-            configuration.getLogger().info("There are " + objectsQueue.size() + " nested object(s) to retrieve (with limit " + configuration.getQueryLimit() + ")");
-            while (!objectsQueue.isEmpty()) {
+            //Create a html page that contains the gateways
+            if (!gatewayObjects.isEmpty()) {
+                writeGateways(packageName, gatewayObjects);
+            }
+        }
+        catch (Exception e){
+
+            handleException(e, "Error: failed while creating policy package: '" + packageName + "'. Exception: " + e.getMessage());
+        }
+        finally {
+            if (phase != null) {
+                phase.close();
+            }
+            // free the temp files and the collections of the package
+            if (context != null) {
+                configuration.closePackageContext(context);
+            }
+        }
+        return policyPackage;
+    }
+
+    /**
+     * This function retrieves the nested objects which are waiting in the queue.
+     * The objects are requested in chunks of 'show-objects' calls which run concurrently, the responses are handled
+     * one by one and the new nested objects they contain are queued back until nothing is left.
+     * A chunk whose call didn't run or didn't complete in time is counted as failed.
+     */
+    private static void resolveNestedObjects(PackageContext context) {
+
+        final Queue<String> objectsQueue = context.getNestedObjectsToRetrieve();
+        final BlockingQueue<NestedObjectsChunk> completedChunks = new LinkedBlockingQueue<>();
+        final int maxChunksInFlight = configuration.getMaxNestedObjectChunks();
+        final Set<NestedObjectsChunk> chunksInFlight = new HashSet<>();
+        final long chunkTimeout = TimeUnit.HOURS.toNanos(NESTED_OBJECTS_CHUNK_TIMEOUT_HOURS);
+        int failedChunks = 0;
+
+        configuration.getLogger().info("There are " + objectsQueue.size() + " nested object(s) to retrieve (with limit "
+                + configuration.getQueryLimit() + ", up to " + maxChunksInFlight + " chunk(s) in flight)");
+
+        //The size of the queue which was last counted in the progress
+        long pendingObjects = 0;
 
+        while (!objectsQueue.isEmpty() || !chunksInFlight.isEmpty()) {
+
+            long queueSize = objectsQueue.size();
+            exportProgress.addObjectsPending(queueSize - pendingObjects);
+            pendingObjects = queueSize;
+
+            while (chunksInFlight.size() < maxChunksInFlight && !objectsQueue.isEmpty()) {
                 final Set<String> objectsToRetrieveChunk = new LinkedHashSet<>();
                 String uidFromQueue;
                 while (objectsToRetrieveChunk.size() < configuration.getQueryLimit() && (uidFromQueue = objectsQueue.poll()) != null) {
                     objectsToRetrieveChunk.add(uidFromQueue);
                 }
 
-                JSONObject payload = new JSONObject();
+                final JSONObject payload = new JSONObject();
 
                 payload.put("limit", configuration.getQueryLimit());
                 payload.put("details-level", "full");
@@ -635,60 +1098,114 @@ public class ShowPackageTool {
 
                 payload.put("in", objectsFilter);
 
+                final NestedObjectsChunk newChunk = new NestedObjectsChunk(objectsToRetrieveChunk);
                 try {
-                    ApiResponse res = client.apiCall(loginResponse, "show-objects", payload);
-                    addObjectsInfoIntoCollections((JSONArray) res.getPayload().get("objects"));
-
-                    List<String> missingUids = new ArrayList<>();
-                    for (String uid : objectsToRetrieveChunk) {
-                        if (!configuration.getUidToName().containsKey(uid)) {
-                            missingUids.add(uid);
+                    newChunk.future = apiCallScheduler.submit(new Callable<StreamedResponse>() {
+                        @Override
+                        public StreamedResponse call()
+                        {
+                            try {
+                                newChunk.response = streamedApiCall("show-objects", payload);
+                            }
+                            catch (ApiClientException | IOException e) {
+                                handleException(e, "Failed to run show-objects");
+                            }
+                            finally {
+                                completedChunks.add(newChunk);
+                            }
+                            StreamedResponse res = newChunk.response;
+                            return res != null && res.isSuccess() ? res : null;
                         }
-                    }
+                    });
+                }
+                catch (RejectedExecutionException e) {
+                    handleException(e, "Failed to submit show-objects");
+                    failedChunks++;
+                    continue;
+                }
+                chunksInFlight.add(newChunk);
+            }
 
-                    configuration.getLogger().info(res.getPayload().get("total") + " objects were retrieved. New size of nested objects queue is " + objectsQueue.size());
-                    if (!missingUids.isEmpty()) {
-                        configuration.getLogger().info("There are " + missingUids.size() + " failed / non-object uid(s) " + missingUids.toString());
+            NestedObjectsChunk chunk;
+            try {
+                chunk = completedChunks.poll(NESTED_OBJECTS_POLL_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                for (NestedObjectsChunk inFlight : chunksInFlight) {
+                    inFlight.future.cancel(true);
+                }
+                exportProgress.addObjectsPending(-pendingObjects);
+                handleException(e, "Interrupted while retrieving nested objects");
+                return;
+            }
+
+            if (chunk == null) {
+                //A chunk which is done without being queued as completed never ran (e.g. it was cancelled)
+                long now = System.nanoTime();
+                Iterator<NestedObjectsChunk> iterator = chunksInFlight.iterator();
+                while (iterator.hasNext()) {
+                    NestedObjectsChunk inFlight = iterator.next();
+                    boolean timedOut = now - inFlight.submitTime > chunkTimeout;
+                    if (timedOut || (inFlight.future.isDone() && !completedChunks.contains(inFlight))) {
+                        inFlight.future.cancel(true);
+                        iterator.remove();
+                        failedChunks++;
+                        configuration.getLogger().severe("Failed to run show-objects on " + inFlight.uids.size()
+                                + " object(s), the call " + (timedOut ? "timed out" : "didn't complete"));
                     }
                 }
-                catch (ApiClientException e) {
-                    handleException(e, "Failed to run show-objects");
+                continue;
+            }
+            if (!chunksInFlight.remove(chunk)) {
+                //The chunk was already counted as failed
+                if (chunk.response != null) {
+                    chunk.response.discard();
                 }
+                continue;
             }
 
+            if (chunk.response == null) {
+                failedChunks++;
+                continue;
+            }
+            if (!chunk.response.isSuccess()) {
+                configuration.getLogger().severe("Failed to run show-objects. " + chunk.response.errorToString());
+                failedChunks++;
+                continue;
+            }
 
-            //Crete a Html page that contains the objects of the package
-            writeDictionary(packageName);
-
-            //Create a policy package
-            policyPackage = new PolicyPackage(packageName, accessLayers, threatLayers, natLayer, httpsLayers, allTypes);
+            //The objects are added one at a time, without building the json tree of the whole response
+            JSONObject response;
+            try {
+                response = readStreamedResponse("show-objects", chunk.response,
+                                                Collections.singletonMap("objects", objectsHandler(context)));
+            }
+            catch (IOException | ParseException e) {
+                handleException(e, "Failed to read the response of show-objects");
+                failedChunks++;
+                continue;
+            }
 
-            //Handle gateways that the policy is install on
-            JSONArray gatewayObjects = new JSONArray();
-            for (GatewayAndServer gateway : configuration.getGatewaysWithPolicy()) {
-                //Add all the relevant gateways and servers for the current package
-                if (gateway.getAccessPolicy() != null && packageName.equalsIgnoreCase(gateway.getAccessPolicy()) ||
-                        gateway.getThreatPolicy() != null && packageName.equalsIgnoreCase(gateway.getThreatPolicy())) {
-                    gatewayObjects.add(gateway.getGatewayObject());
-                    policyPackage.setGatewayAndServer(gateway);
+            List<String> missingUids = new ArrayList<>();
+            for (String uid : chunk.uids) {
+                if (!context.getUidToName().containsKey(uid)) {
+                    missingUids.add(uid);
+                    //Don't request it again for the next packages
+                    configuration.getObjectsCache().markMissing(uid);
                 }
             }
+            exportProgress.addObjectsResolved(chunk.uids.size() - missingUids.size());
 
-            //Create a html page that contains the gateways
-            if (!gatewayObjects.isEmpty()) {
-                writeGateways(packageName, gatewayObjects);
+            configuration.getLogger().info(response.get("total") + " objects were retrieved. New size of nested objects queue is " + objectsQueue.size());
+            if (!missingUids.isEmpty()) {
+                configuration.getLogger().info("There are " + missingUids.size() + " failed / non-object uid(s) " + missingUids.toString());
             }
         }
-        catch (Exception e){
-
-            handleException(e, "Error: failed while creating policy package: '" + packageName + "'. Exception: " + e.getMessage());
-        }
-        finally {
-            // initialize it for he next package
-            allTypes = null;
-            configuration.getUidToName().clear();
+        exportProgress.addObjectsPending(-pendingObjects);
+        if (failedChunks > 0) {
+            configuration.getLogger().warning(failedChunks + " chunk(s) of nested objects failed, their objects"
+                                                      + " are missing from the package");
         }
-        return policyPackage;
     }
 
     /**
@@ -709,7 +1226,7 @@ public class ShowPackageTool {
         Layer natLayer = null;
         try {
             configuration.getLogger().debug("Run command: 'show-package' " + packageName + "' with details level 'full'");
-            res = client.apiCall(loginResponse, "show-package", "{\"name\" : \"" + packageName + "\"}");
+            res = apiCall("show-package", "{\"name\" : \"" + packageName + "\"}");
         }
         catch (ApiClientException e) {
             logoutReportAndExit("Failed to run show-package command on package: '" + packageName + "'. Aborting. " +
@@ -793,11 +1310,11 @@ public class ShowPackageTool {
      * This function creates a payload in order to create a html page of a given access layer.
      *
      * @param accessLayer the access {@link Layer} that the html page will be created for
-     * @param packageName the package name that the layer belongs to
+     * @param context the {@link PackageContext} of the package that the layer belongs to
      *
      * @return True (False in case of an error).
      */
-    private static boolean showAccessRulebase(Layer accessLayer, String packageName) {
+    private static boolean showAccessRulebase(Layer accessLayer, PackageContext context) {
 
         //get details of existing access rulebase
         JSONObject payload = new JSONObject();
@@ -819,7 +1336,7 @@ public class ShowPackageTool {
         }
 
         configuration.getLogger().debug("Run command: 'show-access-rulebase' with payload: " + payload.toJSONString());
-        return showRulebase(accessLayer, packageName, "show-access-rulebase", RulebaseType.ACCESS, payload, accessTypes);
+        return showRulebase(accessLayer, context, "show-access-rulebase", RulebaseType.ACCESS, payload, accessTypes);
 
     }
 
@@ -827,23 +1344,23 @@ public class ShowPackageTool {
      * This function creates a payload in order to create a html page of a given nat layer.
      *
      * @param natLayer the nat {@link Layer} that the html page will be created for
-     * @param packageName the package name that the layer belongs to
+     * @param context the {@link PackageContext} of the package that the layer belongs to
      *
      * @return True (False in case of an error).
      */
-    private static boolean showNatRulebase(Layer natLayer, String packageName) {
+    private static boolean showNatRulebase(Layer natLayer, PackageContext context) {
 
         JSONObject payload = new JSONObject();
         configuration.getLogger().info("Starting handling nat layer: ");
 
-        payload.put("package", packageName);
+        payload.put("package", context.getPackageName());
         payload.put("details-level", "full");
         payload.put("use-object-dictionary", true);
 
         addNewFlagsToControlDetailsLevel(payload);
 
         configuration.getLogger().debug("Run command: 'show-nat-rulebase' with payload: " + payload.toJSONString());
-        return showRulebase( natLayer, packageName, "show-nat-rulebase", RulebaseType.NAT, payload, natTypes);
+        return showRulebase( natLayer, context, "show-nat-rulebase", RulebaseType.NAT, payload, natTypes);
 
     }
 
@@ -851,11 +1368,11 @@ public class ShowPackageTool {
      * This function creates a payload in order to create a html page of a given https layer.
      *
      * @param httpsLayer the https {@link Layer} that the html page will be created for
-     * @param packageName the package name that the layer belongs to
+     * @param context the {@link PackageContext} of the package that the layer belongs to
      *
      * @return True (False in case of an error).
      */
-    private static boolean showHttpsRulebase(Layer httpsLayer, String packageName) {
+    private static boolean showHttpsRulebase(Layer httpsLayer, PackageContext context) {
 
         JSONObject payload = new JSONObject();
         configuration.getLogger().info("Starting handling https layer: ");
@@ -867,7 +1384,7 @@ public class ShowPackageTool {
         addNewFlagsToControlDetailsLevel(payload);
 
         configuration.getLogger().debug("Run command: 'show-https-rulebase' with payload: " + payload.toJSONString());
-        return showRulebase( httpsLayer, packageName, "show-https-rulebase", RulebaseType.HTTPS, payload, httpsTypes);
+        return showRulebase( httpsLayer, context, "show-https-rulebase", RulebaseType.HTTPS, payload, httpsTypes);
 
     }
 
@@ -875,7 +1392,7 @@ public class ShowPackageTool {
      * Utility function that retrieves the rulebase and writes it to the html page.
      *
      * @param layer the layer whose rulebase is to be written
-     * @param packageName the package name that the layer belongs to
+     * @param context the {@link PackageContext} of the package that the layer belongs to
      * @param command the show command to be run (access/nat)
      * @param rulebaseType {@link RulebaseType} the rulebase's type
      * @param payloadTemplate the payloadTemplate to run with the command
@@ -883,8 +1400,12 @@ public class ShowPackageTool {
      *
      * @return True (False in case of an error).
      */
-    private static boolean showRulebase(Layer layer, String packageName, String command,
+    private static boolean showRulebase(Layer layer, PackageContext context, String command,
                                         RulebaseType rulebaseType, JSONObject payloadTemplate, String[] types){
+        if (reuseUnchangedLayer(layer, context, rulebaseType)) {
+            return true;
+        }
+
         ApiResponse res;
 
         int totalObjects = 0;
@@ -898,13 +1419,13 @@ public class ShowPackageTool {
         gettingTotalPayload.put("details-level", "uid");
         gettingTotalPayload.put("limit", "0");
         try {
-            res = client.apiCall(loginResponse, command, gettingTotalPayload);
+            res = apiCall(command, gettingTotalPayload);
         }
         catch (ApiClientException e) {
             handleException(e, "Failed to run show rulebase (" + layer.getName() + ")");
             configuration.getLogger().debug("Following the error, creating an empty html file for layer: '"
                     + layer.getName() + "'");
-            writeRulebase(layer.getName(), packageName, rulebaseType, layer.getDomain(), inlineLayers, true);
+            writeRulebase(layer, context, rulebaseType, inlineLayers, true);
             return false;
         }
 
@@ -913,7 +1434,7 @@ public class ShowPackageTool {
                     + errorResponseToString(res));
             configuration.getLogger().debug("Following the error, creating an empty html file for layer: '"
                     + layer.getName() + "'");
-            writeRulebase(layer.getName(), packageName, rulebaseType, layer.getDomain(), inlineLayers, true);
+            writeRulebase(layer, context, rulebaseType, inlineLayers, true);
             return false;
         }
 
@@ -924,138 +1445,184 @@ public class ShowPackageTool {
         }
 
         if (totalObjects > 0) {
-            final ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_OF_EXECUTORS);
-            List<Callable<ApiResponse>> tasks = new ArrayList<>(totalObjects / limit);
-
-            int offset = 0;
-            while (offset < totalObjects) {
-                JSONObject payload = new JSONObject(payloadTemplate);
-                payload.put("offset", offset);
-                payload.put("limit", limit);
-                tasks.add(new ApiCallTask(command, payload));
-
-                offset += limit;
-            }
+            exportProgress.addRules(totalObjects);
+            final OrderedPageFetcher pages = new OrderedPageFetcher(apiCallScheduler, apiCallTaskFactory(command),
+                    payloadTemplate, totalObjects, limit, getPagesWindow(), 3, TimeUnit.HOURS);
 
             try {
                 configuration.getLogger().debug("Command [" + command + "] uid " + payloadTemplate.get("uid")
-                        + " : Starting execution of " + tasks.size() + " tasks (with " + NUMBER_OF_EXECUTORS + " executor(s))");
-
-                final List<Future<ApiResponse>> futures = executorService.invokeAll(tasks);
-                executorService.shutdown();
-
-                boolean serviceTerminatedSuccessfully = executorService.awaitTermination(3, TimeUnit.HOURS);
+                        + " : Starting execution of " + pages.getNumberOfPages() + " tasks (with up to "
+                        + configuration.getMaxConcurrentCalls() + " concurrent call(s), " + getPagesWindow()
+                        + " page(s) ahead)");
+
+                RulebaseHandler rulebaseHandler = new RulebaseHandler(context, types, rulebaseType, inlineLayers);
+
+                while (pages.hasNext()) {
+                    StreamedResponse page = pages.next();
+
+                    if (page == null) {
+                        pages.cancel();
+                        configuration.getLogger().severe("Failed to run show rulebase ('" + layer.getName()
+                                + "'). Failed to get page " + pages.getPagesTaken() + " of " + pages.getNumberOfPages());
+                        configuration.getLogger().debug("Following the error, creating an empty html file for layer: '"
+                                + layer.getName() + "'");
+                        writeRulebase(layer, context, rulebaseType, inlineLayers, true);
+                        return false;
+                    }
 
-                if (!serviceTerminatedSuccessfully) {
-                    configuration.getLogger().severe("Failed to run show rulebase (" + layer.getName() + "). Timeout after 3 hours.");
-                    configuration.getLogger().debug("Following the error, creating an empty html file for layer: '"
-                            + layer.getName() + "'");
-                    writeRulebase(layer.getName(), packageName, rulebaseType, layer.getDomain(), inlineLayers, true);
-                    return false;
+                    rulebaseHandler.startPage();
+                    exportProgress.addRulesPage(readRulebasePage(command, page, context, rulebaseHandler));
                 }
 
-                configuration.getLogger().debug("Command [" + command + "] uid " + payloadTemplate.get("uid") + " : Finished execution of " + tasks.size() + " tasks");
+                rulebaseHandler.finish();
 
-                JSONArray rulebases = new JSONArray();
+                configuration.getLogger().debug("Command [" + command + "] uid " + payloadTemplate.get("uid")
+                        + " : Finished execution of " + pages.getNumberOfPages() + " tasks, running "
+                        + apiCallScheduler.concurrencyToString());
+            }
+            catch (TimeoutException e) {
+                pages.cancel();
+                configuration.getLogger().severe("Failed to run show rulebase (" + layer.getName() + "). Timeout after 3 hours.");
+                configuration.getLogger().debug("Following the error, creating an empty html file for layer: '"
+                        + layer.getName() + "'");
+                writeRulebase(layer, context, rulebaseType, inlineLayers, true);
+                return false;
+            }
+            catch (InterruptedException | ExecutionException | IOException | ParseException e) {
+                pages.cancel();
+                handleException(e, "Failed to run show rulebase (" + layer.getName() + ")");
+                configuration.getLogger().debug("Following the error, creating an empty html file for layer: '"
+                        + layer.getName() + "'");
+                writeRulebase(layer, context, rulebaseType, inlineLayers, true);
+                return false;
+            }
+        }
 
-                for (Future<ApiResponse> f : futures) {
-                    res = f.get();
-
-                    JSONArray jsonArrayOfObjectDictionary = (JSONArray)res.getPayload().get("objects-dictionary");
-                    addObjectsInfoIntoCollections(jsonArrayOfObjectDictionary);
-                    final JSONArray currentRulebase = (JSONArray) res.getPayload().get("rulebase");
-
-
-                    if (!rulebases.isEmpty() && !currentRulebase.isEmpty()) {
-                        final JSONObject lastAdded = (JSONObject) rulebases.get(rulebases.size() - 1);
-                        final JSONObject firstNew = (JSONObject) currentRulebase.get(0);
+        configuration.getLogger().debug("Found " + totalObjects + " rules in : '" + layer.getName() + "'");
+        configuration.getLogger().debug("Found " + inlineLayers.size() + " inline layer(s)");
+        configuration.getLogger().debug("Creating html file for layer: '" + layer.getName() + "'");
 
-                        if (types[0].equalsIgnoreCase(lastAdded.get("type").toString())
-                                && types[0].equalsIgnoreCase(firstNew.get("type").toString())
-                                && Objects.equals(lastAdded.get("uid").toString(), firstNew.get("uid").toString())) {
+        boolean writeRulebaseResult = writeRulebase(layer, context, rulebaseType, inlineLayers, false);
 
-                            // firstNew is merged into lastAdded
-                            ((JSONArray)lastAdded.get("rulebase")).addAll((JSONArray)firstNew.get("rulebase"));
-                            lastAdded.put("to", firstNew.get("to"));
+        if (!writeRulebaseResult){
+            writeRulebase(layer, context, rulebaseType, inlineLayers, true);
+        }
 
-                            // firstNew is deleted
-                            currentRulebase.remove(0);
-                        }
-                    }
+        // Write rulebase inline layers
+        // The files of the inline layers are created after the file of the parent layer is written, each inline
+        // layer with a rulebase temp file of its own.
+        exportInlineLayers(context, inlineLayers);
 
-                    rulebases.addAll(currentRulebase);
+        configuration.getLogger().info("Done handling rulebase '" + layer.getName() + "'");
 
-                    if (rulebases.size() > 1) {
-                        final JSONArray allExceptTheLastItemRulebase = new JSONArray();
-                        allExceptTheLastItemRulebase.addAll(rulebases.subList(0, rulebases.size() - 1));
+        return writeRulebaseResult;
+    }
 
-                        final JSONArray theLastItemRulebase = new JSONArray();
-                        theLastItemRulebase.addAll(rulebases.subList(rulebases.size() - 1, rulebases.size()));
+    /**
+     * This function exports the given inline layers concurrently, an inline layer which was already created (by this
+     * or another package) is skipped.
+     * If called for a package layer, the function waits until the inline layers, and the inline layers they contain,
+     * are done. If called for an inline layer, the inline layers are only submitted to the tracker of the package
+     * layer, so the tasks of the pool never wait for each other.
+     *
+     * @param context the {@link PackageContext} of the layer which contains the inline layers
+     * @param inlineLayers the inline layers
+     */
+    private static void exportInlineLayers(final PackageContext context, Set<Layer> inlineLayers){
 
-                        inlineLayers.addAll(addRulebase(allExceptTheLastItemRulebase, types, rulebaseType));
+        InlineLayersTracker tracker = context.getInlineLayersTracker();
+        final boolean packageLayer = tracker == null;
+        if (packageLayer) {
+            tracker = new InlineLayersTracker(inlineLayersExecutor);
+        }
 
-                        rulebases = theLastItemRulebase;
+        final InlineLayersTracker inlineLayersTracker = tracker;
+        for (final Layer inlineLayer : inlineLayers) {
+            if(!configuration.addKnownInlineLayer(inlineLayer.getUid())){
+                configuration.getLogger().debug("Inline layer : '" + inlineLayer.getName() + "'  was already created.");
+                continue;
+            }
+            inlineLayersTracker.submit(new Runnable() {
+                @Override
+                public void run()
+                {
+                    PackageContext inlineLayerContext = null;
+                    try {
+                        inlineLayerContext = configuration.createInlineLayerContext(context, inlineLayersTracker);
+                        configuration.getLogger().debug("Creating inline layer: '" + inlineLayer.getName() + "'");
+                        if ( !showAccessRulebase(inlineLayer, inlineLayerContext) ) {
+                            configuration.getLogger().warning("Failed to create inline-layer, name: '" + inlineLayer.getName() + "'");
+                        }
+                    }
+                    catch (Exception e) {
+                        handleException(e, "Failed to create inline-layer, name: '" + inlineLayer.getName() + "'");
+                    }
+                    finally {
+                        if (inlineLayerContext != null) {
+                            configuration.closePackageContext(inlineLayerContext);
+                        }
                     }
                 }
+            });
+        }
 
-                inlineLayers.addAll(addRulebase(rulebases, types, rulebaseType));
+        if (packageLayer) {
+            try {
+                inlineLayersTracker.await();
             }
-            catch (InterruptedException | ExecutionException e) {
-                handleException(e, "Failed to run show rulebase (" + layer.getName() + ")");
-                configuration.getLogger().debug("Following the error, creating an empty html file for layer: '"
-                        + layer.getName() + "'");
-                writeRulebase(layer.getName(), packageName, rulebaseType, layer.getDomain(), inlineLayers, true);
-                return false;
+            catch (InterruptedException e) {
+                handleException(e, "Interrupted while creating inline layers");
             }
         }
+    }
 
-        configuration.getLogger().debug("Found " + totalObjects + " rules in : '" + layer.getName() + "'");
-        configuration.getLogger().debug("Found " + inlineLayers.size() + " inline layer(s)");
-        configuration.getLogger().debug("Creating html file for layer: '" + layer.getName() + "'");
+    /**
+     * This function returns the number of pages which are fetched ahead of the page that is being handled.
+     * The window is fixed for the whole run so the memory of a layer does not depend on its size.
+     *
+     * @return the number of pages
+     */
+    private static int getPagesWindow(){
 
-        boolean writeRulebaseResult = writeRulebase(layer.getName(), packageName, rulebaseType,
-                layer.getDomain(), inlineLayers, false);
+        return PAGES_WINDOW_PER_CALL * configuration.getMaxConcurrentCalls();
+    }
 
-        if (!writeRulebaseResult){
-            writeRulebase(layer.getName(), packageName, rulebaseType, layer.getDomain(), inlineLayers, true);
-        }
+    /**
+     * This function creates a factory of {@link ApiCallTask} for a given command
+     *
+     * @param command the command to run
+     *
+     * @return the factory
+     */
+    private static OrderedPageFetcher.ApiCallTaskFactory apiCallTaskFactory(final String command){
 
-        // Write rulebase inline layers
-        // In the current design we must create the files of the inline layers after the file of the parent layer is
-        // written, otherwise the file of the parent layer will be broken.
-        for (Layer inlineLayer : inlineLayers) {
-            if(configuration.isKnownInlineLayer(inlineLayer.getUid())){
-                configuration.getLogger().debug("Inline layer : '" + inlineLayer.getName() + "'  was already created.");
-                continue;
-            }
-            configuration.setKnownInlineLayers(inlineLayer.getUid());
-            configuration.getLogger().debug("Creating inline layer: '" + inlineLayer.getName() + "'");
-            if ( !showAccessRulebase(inlineLayer, packageName) ) {
-                configuration.getLogger().warning("Failed to create inline-layer, name: '" + inlineLayer.getName() + "'");
+        return new OrderedPageFetcher.ApiCallTaskFactory() {
+            @Override
+            public Callable<StreamedResponse> create(JSONObject payload)
+            {
+                return new ApiCallTask(command, payload);
             }
-        }
-
-        configuration.getLogger().info("Done handling rulebase '" + layer.getName() + "'");
-
-        return writeRulebaseResult;
+        };
     }
 
     /**
      *This function retrieves the rulebase and writes it to the html page.
      *
-     * @param packageName the package name that the layer belongs to
+     * @param context the {@link PackageContext} of the package that the layer belongs to
      * @param threatLayer the threat layer whose rulebase is to be written
      *
      * @return True (False in case of an error).
      */
-    private static boolean showThreatRulebase(String packageName, Layer threatLayer) {
+    private static boolean showThreatRulebase(PackageContext context, Layer threatLayer) {
+
+        if (reuseUnchangedLayer(threatLayer, context, RulebaseType.THREAT)) {
+            return true;
+        }
 
         ApiResponse res;
-        boolean finished = false;
-        int iterations   = 0;
-        int receivedObjects;
         int totalObjects = 0;
         int limit = configuration.getQueryLimit();
+        final String command = "show-threat-rulebase";
 
         configuration.getLogger().info("Starting handling threat layer: '" + threatLayer.getName() + "'");
         configuration.getLogger().debug("Run command: 'show-threat-rulebase' for rulebase: '" + threatLayer.getUid()
@@ -1068,40 +1635,78 @@ public class ShowPackageTool {
 
         addNewFlagsToControlDetailsLevel(payload);
 
-        while (!finished) {
-            payload.put("offset", iterations * limit);
-            payload.put("limit", limit);
+        // Getting the total
+        JSONObject gettingTotalPayload = new JSONObject(payload);
+        gettingTotalPayload.put("details-level", "uid");
+        gettingTotalPayload.put("limit", 0);
 
-            try {
-                res = client.apiCall(loginResponse, "show-threat-rulebase", payload);
-            }
-            catch (ApiClientException e) {
-                handleException(e, "Failed to run \"show threat-rulebase\" ('" + threatLayer.getName() + "')");
-                writeRulebase(threatLayer.getName(),packageName,RulebaseType.THREAT, threatLayer.getDomain(),
-                        Collections.<Layer>emptySet(), true);
-                return false;
-            }
+        try {
+            res = apiCall(command, gettingTotalPayload);
+        }
+        catch (ApiClientException e) {
+            handleException(e, "Failed to run \"show threat-rulebase\" ('" + threatLayer.getName() + "')");
+            writeRulebase(threatLayer, context, RulebaseType.THREAT, Collections.<Layer>emptySet(), true);
+            return false;
+        }
 
-            if (checkAndExitInCaseOfError(res, threatLayer)){
-                writeRulebase(threatLayer.getName(),packageName,RulebaseType.THREAT, threatLayer.getDomain(),
-                        Collections.<Layer>emptySet(), true);
-                return false;
-            }
+        if (checkAndExitInCaseOfError(res, threatLayer)){
+            writeRulebase(threatLayer, context, RulebaseType.THREAT, Collections.<Layer>emptySet(), true);
+            return false;
+        }
 
+        if (res.getPayload().containsKey("total")) {
             totalObjects = Integer.parseInt(res.getPayload().get("total").toString());
-            if (totalObjects == 0) {
-                return true;
-            }
-            JSONArray jsonArrayOfObjectDictionary = (JSONArray)res.getPayload().get("objects-dictionary");
-            addObjectsInfoIntoCollections(jsonArrayOfObjectDictionary);
-            JSONArray rulebases = (JSONArray) res.getPayload().get("rulebase");
-            threatRulebase(rulebases, threatLayer);
+        }
+        if (totalObjects == 0) {
+            return true;
+        }
+        exportProgress.addRules(totalObjects);
+
+        // The pages are requested concurrently and handled in their original order
+        final OrderedPageFetcher pages = new OrderedPageFetcher(apiCallScheduler, apiCallTaskFactory(command),
+                payload, totalObjects, limit, getPagesWindow(), 3, TimeUnit.HOURS);
+
+        configuration.getLogger().debug("Command [" + command + "] uid " + threatLayer.getUid()
+                + " : Starting execution of " + pages.getNumberOfPages() + " tasks (with up to "
+                + configuration.getMaxConcurrentCalls() + " concurrent call(s), " + getPagesWindow()
+                + " page(s) ahead)");
+        try {
+            while (pages.hasNext()) {
+                StreamedResponse page = pages.next();
+
+                if (page == null) {
+                    pages.cancel();
+                    configuration.getLogger().severe("Failed to run show-threat-rulebase command ('"
+                            + threatLayer.getName() + "'). Failed to get page " + pages.getPagesTaken() + " of "
+                            + pages.getNumberOfPages());
+                    writeRulebase(threatLayer, context, RulebaseType.THREAT, Collections.<Layer>emptySet(), true);
+                    return false;
+                }
 
-            receivedObjects = Integer.parseInt(res.getPayload().get("to").toString());
-            if ( receivedObjects == totalObjects || iterations * limit >= totalObjects ) {
-                finished = true;
+                //The rules of the page are collected, so the exception rulebases of all of them are requested together
+                final JSONArray rulebases = new JSONArray();
+                exportProgress.addRulesPage(readRulebasePage(command, page, context, new JsonStreamReader.ElementHandler() {
+                    @Override
+                    public void element(Object rule)
+                    {
+                        rulebases.add(rule);
+                    }
+                }));
+                threatRulebase(context, rulebases, threatLayer);
             }
-            iterations++;
+        }
+        catch (TimeoutException e) {
+            pages.cancel();
+            configuration.getLogger().severe("Failed to run show-threat-rulebase command ('" + threatLayer.getName()
+                    + "'). Timeout after 3 hours.");
+            writeRulebase(threatLayer, context, RulebaseType.THREAT, Collections.<Layer>emptySet(), true);
+            return false;
+        }
+        catch (InterruptedException | ExecutionException | IOException | ParseException e) {
+            pages.cancel();
+            handleException(e, "Failed to run \"show threat-rulebase\" ('" + threatLayer.getName() + "')");
+            writeRulebase(threatLayer, context, RulebaseType.THREAT, Collections.<Layer>emptySet(), true);
+            return false;
         }
 
         configuration.getLogger().debug("Found " + totalObjects + " rules in: '" + threatLayer.getName() + "'");
@@ -1109,8 +1714,7 @@ public class ShowPackageTool {
 
         configuration.getLogger().info("Done handling rulebase: '" + threatLayer.getName() + "'");
 
-        return(writeRulebase(threatLayer.getName(),packageName,RulebaseType.THREAT, threatLayer.getDomain(),
-                Collections.<Layer>emptySet(), false));
+        return(writeRulebase(threatLayer, context, RulebaseType.THREAT, Collections.<Layer>emptySet(), false));
     }
 
     /**
@@ -1148,32 +1752,50 @@ public class ShowPackageTool {
      * This function adds all the rules of a given threat layer into the rules collection,
      * or writes a message into the log file in case of an unsupported rule type (not one of: threat-rule/place-holder)
      * and adds the objects to the object collection.
+     * The exception rulebases of the threat rules are requested concurrently and joined back in the rules order.
      *
+     * @param context the {@link PackageContext} of the package that the layer belongs to
      * @param rulebases the rulbases whose rules are to be added
      * @param threatLayer The threat layer
      */
-    private static void threatRulebase(JSONArray rulebases, Layer threatLayer){
+    private static void threatRulebase(PackageContext context, JSONArray rulebases, final Layer threatLayer){
+
+        //Request the exception rulebases of all the threat rules of the page
+        Map<String, Future<JSONObject>> exceptionRulebases = new HashMap<>();
+        for (Object ruleObject : rulebases) {
+            JSONObject rule = (JSONObject) ruleObject;
+            if ("threat-rule".equalsIgnoreCase(rule.get("type").toString())) {
+                final String ruleUid = rule.get("uid").toString();
+                exceptionRulebases.put(ruleUid, apiCallScheduler.submit(new Callable<JSONObject>() {
+                    @Override
+                    public JSONObject call()
+                    {
+                        return showThreatExceptionRulebase(threatLayer, ruleUid);
+                    }
+                }));
+            }
+        }
 
         for (Object ruleObject : rulebases) {
 
             JSONObject rule = (JSONObject) ruleObject;
             if ("threat-rule".equalsIgnoreCase(rule.get("type").toString())) {
-                writeJsonObjectToFile(rule, configuration.getRulbaseWriter(), true);
+                writeRuleToFile(context, rule);
                 String ruleUid = rule.get("uid").toString();
 
-                JSONObject exceptionRulebase = showThreatExceptionRulebase(threatLayer, ruleUid);
+                JSONObject exceptionRulebase = waitForExceptionRulebase(exceptionRulebases.get(ruleUid), threatLayer, ruleUid);
                 if (exceptionRulebase == null) {
                     continue;
                 }
                 JSONArray exceptions = (JSONArray) exceptionRulebase.get("rulebase");
                 configuration.getLogger().debug("Found "+ exceptions.size() + " exception(s) in rule: '" + ruleUid + "'");
 
-                addRulebase(exceptions, threatTypes, RulebaseType.THREAT);
+                addRulebase(context, exceptions, threatTypes, RulebaseType.THREAT);
                 JSONArray objects = (JSONArray) exceptionRulebase.get("objects-dictionary");
-                addObjectsInfoIntoCollections(objects);
+                addObjectsInfoIntoCollections(context, objects);
             }
             else if ("place-holder".equalsIgnoreCase(rule.get("type").toString())) {
-                writeJsonObjectToFile(rule, configuration.getRulbaseWriter(), true);
+                writeRuleToFile(context, rule);
             }
             else {
                 configuration.getLogger().severe("Unsupported type: " + rule.get("type").toString());
@@ -1181,8 +1803,31 @@ public class ShowPackageTool {
         }
     }
 
+    /**
+     * This function waits for the exception rulebase of a given threat rule.
+     *
+     * @param exceptionRulebase the future of the exception rulebase
+     * @param threatLayer the threat layer of the threat rule
+     * @param ruleUid the rule uid of the rule containing the exception rules
+     *
+     * @return the exception rules, or null in case of fail.
+     */
+    private static JSONObject waitForExceptionRulebase(Future<JSONObject> exceptionRulebase, Layer threatLayer,
+                                                       String ruleUid){
+        try {
+            return exceptionRulebase.get();
+        }
+        catch (InterruptedException | ExecutionException e) {
+            handleException(e,"Failed to run show-threat-rule-exception-rulebase command ("
+                    + threatLayer.getName() + "'" + threatLayer.getUid() + "' rule: '" + ruleUid + "')");
+            return null;
+        }
+    }
+
     /**
      *This function returns all the threat exception rules of a given rule and given threat layer .
+     * Versions which don't support the threat layer uid are asked with the layer name, this is decided once per
+     * server version.
      *
      * @param threatLayer the threat layer of the threat rule
      * @param ruleUid the rule uid of the rule containing the exception rules
@@ -1201,28 +1846,48 @@ public class ShowPackageTool {
 
         addNewFlagsToControlDetailsLevel(payload);
 
-        payload.put("uid", threatLayer.getUid());
+        final String serverVersion = String.valueOf(loginResponse.getApiVersion());
+        final Boolean layerByName = threatExceptionLayerByName.get(serverVersion);
+
+        if (Boolean.TRUE.equals(layerByName)) {
+            payload.put("name", threatLayer.getName());
+        }
+        else {
+            payload.put("uid", threatLayer.getUid());
+        }
 
         try {
             configuration.getLogger().debug("Run command: 'show-threat-rule-exception-rulebase' " +
                     "for threat layer: '" + threatLayer.getName() + "' ('" + ruleUid
                     + "') with details level 'full'");
 
-            res = client.apiCall(loginResponse,"show-threat-rule-exception-rulebase", payload);
+            res = apiCall("show-threat-rule-exception-rulebase", payload);
         }
         catch (ApiClientException e) {
+            if (layerByName != null) {
+                handleException(e,"Failed to run show-threat-rule-exception-rulebase command ("
+                        + threatLayer.getName() + "'" + threatLayer.getUid() + "')");
+                return null;
+            }
+
             // probably due to a version that does not support threatLayerUid and supports only layerName
             payload.remove("uid");
             payload.put("name", threatLayer.getName());
+            apiMetrics.recordRetry("show-threat-rule-exception-rulebase");
 
             try {
-                res = client.apiCall(loginResponse,"show-threat-rule-exception-rulebase", payload);
+                res = apiCall("show-threat-rule-exception-rulebase", payload);
             }
             catch (ApiClientException e1) {
                 handleException(e1,"Failed to run show-threat-rule-exception-rulebase command ("
                         + threatLayer.getName() + "'" + threatLayer.getUid() + "')");
                 return null;
             }
+
+            if (threatExceptionLayerByName.putIfAbsent(serverVersion, true) == null) {
+                configuration.getLogger().debug("Server version " + serverVersion + " doesn't support the threat layer uid, " +
+                        "using the threat layer name in 'show-threat-rule-exception-rulebase'");
+            }
         }
         if (res == null || !res.isSuccess()) {
             configuration.getLogger().severe("Failed to run show-threat-rule-exception-rulebase command ('"
@@ -1230,25 +1895,48 @@ public class ShowPackageTool {
                     errorResponseToString(res));
             return null;
         }
+        if (layerByName == null) {
+            threatExceptionLayerByName.putIfAbsent(serverVersion, payload.containsKey("name"));
+        }
         return res.getPayload();
     }
 
     /**
      *This function creates an objects html page for a given package.
      *
-     * @param packageName package name
+     * @param context the {@link PackageContext} of the package
      */
-    private static void writeDictionary(String packageName){
+    private static void writeDictionary(PackageContext context){
 
         try {
-            configuration.getObjectsWriter().writeBytes("]");
-            configuration.getHtmlUtils().writeObjectsHTML(packageName);
-            configuration.getObjectsWriter().seek(0);
-            configuration.getObjectsWriter().writeBytes("[");
+            context.getObjectsWriter().endArray();
+            configuration.getHtmlUtils().writeObjectsHTML(context.getPackageName(), context.getObjectsFileName());
+            if (configuration.isSharedUidToName()) {
+                configuration.getHtmlUtils().writeUidToNameScript(context.getPackageName(), context.getUidToName());
+            }
+            exportManifest.addObjectsFile(configuration.getHtmlUtils().getObjectsFileBaseName(context.getPackageName()));
         }
         catch (IOException e) {
             handleException(e,"Failed to write a HTML file for objects.");
         }
+        finally {
+            resetTempFile(context.getObjectsWriter());
+        }
+    }
+
+    /**
+     * This function empties a temp file once its content was written, so it can be used again
+     *
+     * @param fileWriter the writer of the temp file
+     */
+    private static void resetTempFile(JsonArrayWriter fileWriter){
+
+        try {
+            fileWriter.reset();
+        }
+        catch (IOException e) {
+            handleException(e, "Failed to clear a temp file.");
+        }
     }
 
     /**
@@ -1270,37 +1958,180 @@ public class ShowPackageTool {
     /**
      *This function is responsible for creating a html page for a given layer.
      *
-     * @param layerName the layer's name
-     * @param packageName the package's name
+     * @param layer the layer
+     * @param context the {@link PackageContext} of the package
      * @param rulebaseType NAT/ACCESS/THREAT
-     * @param domain domain
      * @param inlineLayers list of inLineLayers inside the layer
      * @param failedCreatingRulebase True if the tool failed getting the info about that rulebase
      *
      * @return True (False in case of an error).
      */
-    private static boolean writeRulebase(String layerName,String packageName, RulebaseType rulebaseType,
-                                         String domain, Set<Layer> inlineLayers, boolean failedCreatingRulebase){
+    private static boolean writeRulebase(Layer layer, PackageContext context, RulebaseType rulebaseType,
+                                         Set<Layer> inlineLayers, boolean failedCreatingRulebase){
+
+        String packageName = context.getPackageName();
+        String layerName = getRulebaseLayerName(layer, context, rulebaseType);
+
+        try {
+            context.getRulbaseWriter().endArray();
+            //The pages are written during the "layers" phase, they're measured on their own as well
+            try (RunPhases.Phase phase = runPhases.start("rulebase-html", packageName)) {
+                configuration.getHtmlUtils().writeRulebaseHTML(layerName, packageName, layer.getDomain(), loginResponse.getApiVersion(),
+                        rulebaseType.typeToString(), context.getRulebaseFileName(),
+                        context.getUidToName().subset(context.getLayerUids()),
+                        inlineLayers, failedCreatingRulebase, configuration.showRuleUidFlag());
+            }
+
+            if (!failedCreatingRulebase) {
+                addLayerToManifest(layer, layerName, context, inlineLayers);
+            }
+        }
+        catch (IOException e) {
+            handleException(e,"Failed to create rulbase page");
+            return false;
+        }
+        finally {
+            context.resetLayer();
+            resetTempFile(context.getRulbaseWriter());
+        }
+
+        return true;
+    }
+
+    /**
+     * This function returns the name of the layer that its html page is named after
+     *
+     * @param layer the layer
+     * @param context the {@link PackageContext} of the package
+     * @param rulebaseType NAT/ACCESS/THREAT
+     *
+     * @return the name
+     */
+    private static String getRulebaseLayerName(Layer layer, PackageContext context, RulebaseType rulebaseType){
 
         //If it's nat change the layer name
         if(rulebaseType == RulebaseType.NAT){
-            layerName = packageName + " " + layerName;
+            return context.getPackageName() + " " + layer.getName();
         }
+        return layer.getName();
+    }
 
+    /**
+     * This function adds the details of a layer which was written to the manifest of the result folder
+     *
+     * @param layer the layer
+     * @param layerName the name of the layer's html page
+     * @param context the {@link PackageContext} of the package
+     * @param inlineLayers the inline layers of the layer
+     *
+     * @throws IOException in case the layer's temp file couldn't be read
+     */
+    private static void addLayerToManifest(Layer layer, String layerName, PackageContext context,
+                                           Set<Layer> inlineLayers) throws IOException {
+
+        //A layer without uid (nat) can't be compared with the next run
+        if (layer.getUid() == null) {
+            return;
+        }
+
+        String fileBaseName = configuration.getHtmlUtils().getRulebaseFileBaseName(layerName, layer.getDomain());
+        JSONArray uids = new JSONArray();
+        JSONArray objects = new JSONArray();
+        for (String uid : context.getLayerUids()) {
+            uids.add(uid);
+            if (context.getUidToName().containsKey(uid)) {
+                objects.add(uid);
+            }
+        }
+        JSONArray inlineLayersInfo = new JSONArray();
+        for (Layer inlineLayer : inlineLayers) {
+            JSONObject inlineLayerInfo = new JSONObject();
+            inlineLayerInfo.put("uid", inlineLayer.getUid());
+            inlineLayerInfo.put("name", inlineLayer.getName());
+            inlineLayerInfo.put("domain", inlineLayer.getDomain());
+            inlineLayerInfo.put("domain-type", inlineLayer.getDomainType());
+            inlineLayerInfo.put("html-file-name", inlineLayer.getHtmlFileName());
+            inlineLayersInfo.add(inlineLayerInfo);
+        }
+
+        JSONObject entry = new JSONObject();
+        entry.put("layer-uid", layer.getUid());
+        entry.put("rules", context.getLayerRules());
+        //The json file holds the content of the temp file, which is still there when the json file was already archived
+        entry.put("hash", ExportManifest.hashFile(Paths.get(context.getRulebaseFileName())));
+        entry.put("uids", uids);
+        entry.put("objects", objects);
+        entry.put("inline-layers", inlineLayersInfo);
+        exportManifest.putLayer(fileBaseName, entry);
+    }
+
+    /**
+     * This function reuses the files of a layer from the previous result folder (see --incremental-from) in case
+     * neither the layer, its rules or the objects they reference were changed since the previous result.
+     * The objects of the layer are added to the package and its inline layers are handled as well.
+     *
+     * @param layer the layer
+     * @param context the {@link PackageContext} of the package
+     * @param rulebaseType NAT/ACCESS/THREAT
+     *
+     * @return True if the files were reused, False if the layer needs to be created.
+     */
+    private static boolean reuseUnchangedLayer(Layer layer, PackageContext context, RulebaseType rulebaseType){
+
+        if (previousExport == null || layer.getUid() == null) {
+            return false;
+        }
+
+        String layerName = getRulebaseLayerName(layer, context, rulebaseType);
+        String fileBaseName = configuration.getHtmlUtils().getRulebaseFileBaseName(layerName, layer.getDomain());
+        JSONObject entry = previousExport.getLayer(fileBaseName);
+        if (entry == null || !layer.getUid().equals(entry.get("layer-uid"))
+                || previousExportChangedUids.contains(layer.getUid())) {
+            return false;
+        }
+        for (Object uid : (JSONArray) entry.get("uids")) {
+            if (previousExportChangedUids.contains(uid.toString())) {
+                return false;
+            }
+        }
+
+        String previousFolder = configuration.getIncrementalFrom();
         try {
-            configuration.getRulbaseWriter().writeBytes("]");
-            configuration.getHtmlUtils().writeRulebaseHTML(layerName, packageName, domain, loginResponse.getApiVersion(),
-                    rulebaseType.typeToString(),
-                    configuration.getUidToName(),
-                    inlineLayers, failedCreatingRulebase, configuration.showRuleUidFlag());
-            configuration.getRulbaseWriter().seek(0);
-            configuration.getRulbaseWriter().writeBytes("[");
+            String previousHash = ExportManifest.hashFile(Paths.get(previousFolder, fileBaseName + ExportManifest.JSON_SUFFIX));
+            if (!previousHash.equals(entry.get("hash"))) {
+                configuration.getLogger().warning("The json file of layer '" + layerName
+                                                          + "' in the previous result was modified, creating it again");
+                return false;
+            }
+            configuration.getHtmlUtils().copyRulebaseFiles(fileBaseName, previousFolder);
         }
         catch (IOException e) {
-            handleException(e,"Failed to create rulbase page");
+            configuration.getLogger().warning("Failed to reuse the files of layer '" + layerName + "', creating it again. "
+                                                      + e.getMessage());
             return false;
         }
+        exportManifest.putLayer(fileBaseName, entry);
+
+        configuration.getLogger().info("Layer '" + layerName + "' (" + entry.get("rules")
+                                               + " rules) didn't change, reusing the previous result");
+
+        //The objects of the layer are taken from the cache, or retrieved if they aren't cached
+        for (Object uid : (JSONArray) entry.get("objects")) {
+            addNestedObjectToQueue(context, uid);
+        }
 
+        Set<Layer> inlineLayers = new HashSet<>();
+        for (Object inlineLayerObject : (JSONArray) entry.get("inline-layers")) {
+            JSONObject inlineLayerInfo = (JSONObject) inlineLayerObject;
+            Layer inlineLayer = new Layer();
+            inlineLayer.setUid((String) inlineLayerInfo.get("uid"));
+            inlineLayer.setName((String) inlineLayerInfo.get("name"));
+            inlineLayer.setDomain((String) inlineLayerInfo.get("domain"));
+            inlineLayer.setDomainType((String) inlineLayerInfo.get("domain-type"));
+            inlineLayer.setHtmlFileName((String) inlineLayerInfo.get("html-file-name"));
+            inlineLayers.add(inlineLayer);
+        }
+        exportInlineLayers(context, inlineLayers);
         return true;
     }
 
@@ -1358,13 +2189,14 @@ public class ShowPackageTool {
      * While handling the rules of the given rulebase, it aggregates all the inline-layers of the rulebase to be
      * handled later.
      *
+     * @param context the {@link PackageContext} of the package that the rulebase belongs to
      * @param rulebase the rulebases that will added to the collection
      * @param types supported rule types
      * @param rulebaseType Type of the rulebase
      *
      * @return Set of the inline-layers
      */
-    private static Set<Layer> addRulebase(JSONArray rulebase, String[] types, RulebaseType rulebaseType){
+    private static Set<Layer> addRulebase(PackageContext context, JSONArray rulebase, String[] types, RulebaseType rulebaseType){
 
         Set<Layer> inlineLayers = new HashSet<>();
 
@@ -1377,12 +2209,12 @@ public class ShowPackageTool {
                 // We remove the section rules here to prevent duplication
                 // The rules are added later following the section (to get a flat view)
                 JSONArray jsonArrayOfRules = (JSONArray) rule.remove("rulebase");
-                writeJsonObjectToFile(rule, configuration.getRulbaseWriter(), true);
+                writeRuleToFile(context, rule);
 
                 if (jsonArrayOfRules != null && jsonArrayOfRules.size() > 0) {
                     for (Object jsonArrayOfRule : jsonArrayOfRules) {
                         JSONObject jsonObject = (JSONObject) jsonArrayOfRule;
-                        writeJsonObjectToFile(jsonObject, configuration.getRulbaseWriter(), true);
+                        writeRuleToFile(context, jsonObject);
                         //Check existence of the inline-layer
                         if (rulebaseType == RulebaseType.ACCESS && jsonObject.get("inline-layer") != null) {
                             Layer inlineLayer = createInlineLayer(jsonObject.get("inline-layer").toString());
@@ -1398,7 +2230,7 @@ public class ShowPackageTool {
             else if (types[1].equalsIgnoreCase(rule.get("type").toString()) ||
                     types[2].equalsIgnoreCase(rule.get("type").toString())) {
 
-                writeJsonObjectToFile(rule, configuration.getRulbaseWriter(), true);
+                writeRuleToFile(context, rule);
 
                 //Check existence of the inline-layer
                 if (rulebaseType == RulebaseType.ACCESS && rule.get("inline-layer") != null) {
@@ -1418,17 +2250,63 @@ public class ShowPackageTool {
     }
 
     /**
-     * Creates Inline Layer
+     * Creates Inline Layer.
+     * The details of every inline layer are retrieved once, a layer which is referenced by several rules (or
+     * requested by several threads at the same time) is shared. A layer which couldn't be retrieved is forgotten.
      * @param inlineLayerUid Inline layer UID
      *
      * @return Created inline layer
      */
-    private static Layer createInlineLayer(String inlineLayerUid)
+    private static Layer createInlineLayer(final String inlineLayerUid)
+    {
+        FutureTask<Layer> inlineLayer = inlineLayersByUid.get(inlineLayerUid);
+        if (inlineLayer == null) {
+            FutureTask<Layer> newInlineLayer = new FutureTask<>(new Callable<Layer>() {
+                @Override
+                public Layer call()
+                {
+                    if (failedInlineLayerUids.contains(inlineLayerUid)) {
+                        apiMetrics.recordRetry("show-access-layer");
+                    }
+                    return showInlineLayer(inlineLayerUid);
+                }
+            });
+            inlineLayer = inlineLayersByUid.putIfAbsent(inlineLayerUid, newInlineLayer);
+            if (inlineLayer == null) {
+                inlineLayer = newInlineLayer;
+                inlineLayer.run();
+            }
+        }
+
+        try {
+            Layer layer = inlineLayer.get();
+            if (layer == null) {
+                //A failed layer isn't kept, so a later reference to it retrieves it again
+                failedInlineLayerUids.add(inlineLayerUid);
+                inlineLayersByUid.remove(inlineLayerUid, inlineLayer);
+            }
+            return layer;
+        }
+        catch (InterruptedException | ExecutionException e) {
+            failedInlineLayerUids.add(inlineLayerUid);
+            inlineLayersByUid.remove(inlineLayerUid, inlineLayer);
+            handleException(e, "Failed to run show-access-layer UID: ('" + inlineLayerUid + "')");
+            return null;
+        }
+    }
+
+    /**
+     * This function retrieves the details of an inline layer
+     * @param inlineLayerUid Inline layer UID
+     *
+     * @return the inline layer, or null in case of an error
+     */
+    private static Layer showInlineLayer(String inlineLayerUid)
     {
         ApiResponse res;
 
         try {
-            res = client.apiCall(loginResponse, "show-access-layer", "{\"uid\": \"" + inlineLayerUid + "\"}");
+            res = apiCall("show-access-layer", "{\"uid\": \"" + inlineLayerUid + "\"}");
         }
         catch (ApiClientException e) {
             handleException(e, "Failed to run show-access-layer UID: ('" + inlineLayerUid + "')");
@@ -1448,27 +2326,76 @@ public class ShowPackageTool {
     /**
      * This function adds <uid,name> of the given objects to the collection, and adds the objects to the objects collection.
      *
+     * @param context the {@link PackageContext} of the package that the objects belong to
      * @param objects the objects that will added to the collection
      */
-    private static void addObjectsInfoIntoCollections(JSONArray objects)
+    private static void addObjectsInfoIntoCollections(PackageContext context, JSONArray objects)
     {
         if (objects == null) {
             return;
         }
 
-        for (Object o : objects) {
-            addObjectInformationIntoCollections((JSONObject) o);
+        //The inline layers of the package add objects concurrently
+        synchronized (context.getObjectsLock()) {
+            for (Object o : objects) {
+                addObjectInformationIntoCollections(context, (JSONObject) o);
+            }
         }
     }
 
+    /**
+     * This function creates a handler which adds the objects it receives into the collections, one at a time.
+     *
+     * @param context the {@link PackageContext} of the package that the objects belong to
+     *
+     * @return the handler
+     */
+    private static JsonStreamReader.ElementHandler objectsHandler(final PackageContext context)
+    {
+        return new JsonStreamReader.ElementHandler() {
+            @Override
+            public void element(Object object)
+            {
+                //The inline layers of the package add objects concurrently
+                synchronized (context.getObjectsLock()) {
+                    addObjectInformationIntoCollections(context, (JSONObject) object);
+                }
+            }
+        };
+    }
+
+    /**
+     * This function reads a page of a rulebase without building the json tree of the whole page: the objects of its
+     * dictionary are added into the collections and its rules are handed over to a given handler, one at a time.
+     *
+     * @param command the command of the page
+     * @param page the response of the page
+     * @param context the {@link PackageContext} of the package that the rulebase belongs to
+     * @param rulesHandler receives the rules (or sections) of the page
+     *
+     * @return the page without its rules and objects (e.g. its "from", "to" and "total")
+     * @throws IOException in case a rule couldn't be handled
+     * @throws ParseException in case the response isn't a valid json
+     */
+    private static JSONObject readRulebasePage(String command, StreamedResponse page, PackageContext context,
+                                               JsonStreamReader.ElementHandler rulesHandler)
+            throws IOException, ParseException
+    {
+        Map<String, JsonStreamReader.ElementHandler> handlers = new HashMap<>();
+        handlers.put("objects-dictionary", objectsHandler(context));
+        handlers.put("rulebase", rulesHandler);
+        return readStreamedResponse(command, page, handlers);
+    }
+
     /**
      * This function adds <uid,name> of a given object to the collection, and adds the object to the objects File.
      *
+     * @param context the {@link PackageContext} of the package that the object belongs to
      * @param object the object that will be added
      */
-    private static void addObjectInformationIntoCollections(JSONObject object){
+    static void addObjectInformationIntoCollections(PackageContext context, JSONObject object){
 
-        final Map<String, String> uidToName = configuration.getUidToName();
+        final UidDictionary uidToName = context.getUidToName();
 
         String uid = object.get("uid").toString();
         if (!uidToName.containsKey(uid)) {
@@ -1478,11 +2405,13 @@ public class ShowPackageTool {
                 name = object.get("name").toString();
             }
             uidToName.put(uid, name);
+            configuration.getObjectsCache().put(object);
 
-            addNestedObjectsFromCollections(object);
-            addOtherNestedObjects(object);
+            addNestedObjectsFromCollections(context, object);
+            addOtherNestedObjects(context, object);
 
-            writeJsonObjectToFile(object, configuration.getObjectsWriter(), false);
+            context.countObjectType(object);
+            writeJsonObjectToFile(object, context.getObjectsWriter());
         }
     }
 
@@ -1490,15 +2419,16 @@ public class ShowPackageTool {
      * If the input object has fields that contain nested objects, adds them
      * to the objects to dereference queue.
      *
+     * @param context the {@link PackageContext} of the package that the object belongs to
      * @param object the object contains nested objects
      */
-    private static void addOtherNestedObjects(JSONObject object)
+    private static void addOtherNestedObjects(PackageContext context, JSONObject object)
     {
         for (String field : OBJECT_FIELDS_CONTAINING_NESTED_OBJECTS) {
             Object fieldWithNestedObjects = object.get(field);
 
             if (fieldWithNestedObjects != null) {
-                addNestedObjectToQueue(fieldWithNestedObjects);
+                addNestedObjectToQueue(context, fieldWithNestedObjects);
             }
         }
     }
@@ -1507,9 +2437,10 @@ public class ShowPackageTool {
      * If the input object has collections that contain nested objects, adds them
      * to the objects to dereference queue.
      *
+     * @param context the {@link PackageContext} of the package that the object belongs to
      * @param object the object contains nested objects
      */
-    private static void addNestedObjectsFromCollections(JSONObject object)
+    private static void addNestedObjectsFromCollections(PackageContext context, JSONObject object)
     {
         for (String field : COLLECTION_FIELDS_CONTAINING_NESTED_OBJECTS) {
             Object fieldContainMembers = object.get(field);
@@ -1518,7 +2449,7 @@ public class ShowPackageTool {
                 JSONArray members = (JSONArray) fieldContainMembers;
 
                 for (Object member : members) {
-                    addNestedObjectToQueue(member);
+                    addNestedObjectToQueue(context, member);
                 }
             }
         }
@@ -1526,59 +2457,65 @@ public class ShowPackageTool {
 
 
     /**
-     * This function add specific nested object to the objects to dereference queue.
+     * This function add specific nested object to the objects to dereference queue, or takes it from the objects cache
+     * if it was already retrieved by a previous package.
      *
+     * @param context the {@link PackageContext} of the package that the object belongs to
      * @param nestedObject the object contains nested objects
      */
-    private static void addNestedObjectToQueue(Object nestedObject)
+    private static void addNestedObjectToQueue(PackageContext context, Object nestedObject)
     {
         // Input nestedObject could be a JsonObject or a UID string
         if (nestedObject instanceof JSONObject) {
             nestedObject = ((JSONObject) nestedObject).get("uid");
         }
 
-        if ((nestedObject instanceof String) && !(configuration.getUidToName().containsKey(nestedObject))) {
-            configuration.getNestedObjectsToRetrieve().offer((String) nestedObject);
+        if (!(nestedObject instanceof String)) {
+            return;
+        }
+        String uid = (String) nestedObject;
+
+        synchronized (context.getObjectsLock()) {
+            if (context.getUidToName().containsKey(uid)) {
+                return;
+            }
+
+            // An object which was retrieved by a previous package is taken from the cache instead of the server
+            JSONObject cachedObject = configuration.getObjectsCache().get(uid);
+            if (cachedObject != null) {
+                addObjectInformationIntoCollections(context, cachedObject);
+                return;
+            }
+
+            // An object is requested only once, even if it is referenced by several objects before it is retrieved
+            if (!configuration.getObjectsCache().isMissing(uid) && context.getRequestedNestedObjects().add(uid)) {
+                context.getNestedObjectsToRetrieve().offer(uid);
+            }
         }
     }
 
+    /**
+     * This function writes a given rule to the rulebase file of the package
+     * @param context the {@link PackageContext} of the package
+     * @param rule the rule
+     * @return true on success, otherwise false
+     */
+    private static boolean writeRuleToFile(PackageContext context, JSONObject rule){
+
+        context.addLayerRule(rule);
+        return writeJsonObjectToFile(rule, context.getRulbaseWriter());
+    }
+
     /**
      * This function writes the given json object to a given file
      * @param object the json object need to be written to the file
      * @param fileWriter the file that the json object need to be written to
-     * @param rulbase true if the file is rulebases file
      * @return true on success, otherwise false
      */
-    private static boolean writeJsonObjectToFile(JSONObject object, RandomAccessFile fileWriter, boolean rulbase){
-
-        if (!rulbase) {
-            String type;
-            if (object.containsKey(TYPE)) {
-                type = (object).get(TYPE).toString();
-            }
-            else {
-                //type field doesn't exist in the object, define the type as "undefined"
-                type = UNDEFINED;
-            }
-            if (allTypes == null) {
-                allTypes = new JSONObject();
-            }
-            if (allTypes.containsKey(type)) {//type already exists, add one to the counter
-                int count = Integer.parseInt(allTypes.get(type).toString());
-                count++;
-                allTypes.put(type, count);
-            }
-            else {
-                allTypes.put(type, 1);
-            }
-        }
+    static boolean writeJsonObjectToFile(JSONObject object, JsonArrayWriter fileWriter){
 
         try {
-            if (fileWriter.getFilePointer() > 1) {
-                fileWriter.writeBytes(",");
-            }
-            byte[] bytes = object.toJSONString().getBytes("UTF-8");
-            fileWriter.write(bytes);
+            fileWriter.write(object);
         }
         catch (IOException e) {
             return false;
@@ -1679,6 +2616,20 @@ public class ShowPackageTool {
         }
     }
 
+    /**
+     * This function opens the tar file which the files are added to during the run (see --stream-tar-gz)
+     */
+    private static void openStreamingTarFile(){
+        try {
+            streamingTarGZ = new StreamingTarGZ(configuration.getTarGzPath(), configuration.getCompressionLevel(),
+                                                configuration.getCompressionThreads(), configuration.isDeleteTempFile());
+            configuration.getHtmlUtils().setArchive(streamingTarGZ);
+        }
+        catch (IOException e) {
+            logoutReportAndExit("Failed to create the tar file. " + e.getMessage(), MessageType.SEVERE, false);
+        }
+    }
+
     /**
      * This function creates the tar file.
      * @param tarPath The temp directory path
@@ -1686,7 +2637,14 @@ public class ShowPackageTool {
      */
     private static void createTarFile(String tarPath, String directoryPath){
         try {
-            TarGZUtils.createTarGZ(directoryPath, tarPath, configuration.isDeleteTempFile());
+            if (streamingTarGZ != null) {
+                //Only the files which weren't complete during the run are left (e.g. the log file)
+                streamingTarGZ.finish(directoryPath, configuration.isDeleteTempFile());
+                System.out.println("Result file location: " + tarPath);
+                return;
+            }
+            TarGZUtils.createTarGZ(directoryPath, tarPath, configuration.isDeleteTempFile(),
+                                   configuration.getCompressionLevel(), configuration.getCompressionThreads());
             System.out.println("Result file location: " + tarPath);
         }
         catch (IOException e) {
@@ -1740,6 +2698,203 @@ public class ShowPackageTool {
         return localIps;
     }
 
+    /**
+     * This function runs a command and records its latency and response in the api metrics
+     *
+     * @param command the command to run
+     * @param payload the payload of the command (json object or string)
+     *
+     * @return the response of the server
+     * @throws ApiClientException in case the command couldn't be run
+     */
+    private static ApiResponse apiCall(String command, Object payload) throws ApiClientException
+    {
+        long start = System.nanoTime();
+        ApiResponse res = null;
+        try {
+            res = client.apiCall(loginResponse, command, payload);
+            return res;
+        }
+        finally {
+            apiMetrics.record(command, System.nanoTime() - start, res);
+        }
+    }
+
+    /**
+     * This function runs a show command whose objects are returned at once (the client requests all the pages),
+     * and records its latency and response in the api metrics
+     *
+     * @param command the command to run
+     * @param container the key of the objects in the response
+     * @param payload the payload of the command (json object or string)
+     *
+     * @return the response of the server
+     * @throws ApiClientException in case the command couldn't be run
+     */
+    private static ApiResponse apiQuery(String command, String container, Object payload) throws ApiClientException
+    {
+        long start = System.nanoTime();
+        ApiResponse res = null;
+        try {
+            res = client.apiQuery(loginResponse, command, container, payload);
+            return res;
+        }
+        finally {
+            apiMetrics.record(command, System.nanoTime() - start, res);
+        }
+    }
+
+    /**
+     * This function runs a show command whose response is read one element at a time (a page of a rulebase, a chunk
+     * of nested objects), and records its latency and length in the api metrics.
+     * The raw response is returned if it can be read, otherwise the response which was parsed by the client.
+     * A call which fails on a server or connection error is run again (up to {@value #STREAMED_CALL_RETRIES} times),
+     * every call which is run again is counted as a retry in the api metrics.
+     *
+     * @param command the command to run
+     * @param payload the payload of the command
+     *
+     * @return the response of the server
+     * @throws ApiClientException in case the command couldn't be run by the client
+     * @throws IOException in case the raw response couldn't be read
+     */
+    private static StreamedResponse streamedApiCall(String command, JSONObject payload)
+            throws ApiClientException, IOException
+    {
+        for (int attempt = 0; ; attempt++) {
+            String failure;
+            try {
+                StreamedResponse res = runStreamedApiCall(command, payload);
+                if (res == null || res.isSuccess() || res.getStatusCode() < HTTP_SERVER_ERROR
+                        || attempt == STREAMED_CALL_RETRIES) {
+                    return res;
+                }
+                failure = "status code " + res.getStatusCode();
+                res.discard();
+            }
+            catch (ApiClientException | IOException e) {
+                //A call which was cancelled (e.g. the pages after a failed page) isn't run again
+                if (attempt == STREAMED_CALL_RETRIES || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                failure = e.getMessage();
+            }
+            configuration.getLogger().debug("Command [" + command + "] failed (" + failure + "), running it again");
+            apiMetrics.recordRetry(command);
+        }
+    }
+
+    /**
+     * This function runs a show command once (see {@link #streamedApiCall})
+     */
+    private static StreamedResponse runStreamedApiCall(String command, JSONObject payload)
+            throws ApiClientException, IOException
+    {
+        if (rawApiClient == null) {
+            ApiResponse res = apiCall(command, payload);
+            return res == null ? null : new StreamedResponse(res);
+        }
+
+        long start = System.nanoTime();
+        StreamedResponse res = null;
+        try {
+            res = rawApiClient.call(command, payload);
+            return res;
+        }
+        finally {
+            apiMetrics.record(command, System.nanoTime() - start, res != null && res.isSuccess(),
+                              res == null ? 0 : res.getLength());
+        }
+    }
+
+    /**
+     * This function reads a response of {@link #streamedApiCall}, the elements of the given arrays are handed over
+     * one at a time. The objects of a raw response are counted in the api metrics once it's read.
+     *
+     * @param command the command of the response
+     * @param response the response
+     * @param handlers the handlers of the elements, by the keys of the arrays in the response
+     *
+     * @return the response without the elements of the arrays
+     * @throws IOException in case an element couldn't be handled
+     * @throws ParseException in case the response isn't a valid json
+     */
+    private static JSONObject readStreamedResponse(String command, StreamedResponse response,
+                                                   Map<String, JsonStreamReader.ElementHandler> handlers)
+            throws IOException, ParseException
+    {
+        JSONObject content = response.read(handlers);
+        if (response.isRaw()) {
+            apiMetrics.recordPage(command, content);
+        }
+        return content;
+    }
+
+    /**
+     * This function creates the client which reads the raw responses of the pages of the rulebases and of the
+     * nested objects, over the session of the api client.
+     * The client accepts only the certificate whose fingerprint the api client verified (unless -b is used), if the
+     * fingerprint is unknown the raw responses aren't read.
+     *
+     * @return the client, or null if the raw responses can't be read (the client parses the responses then)
+     */
+    private static RawApiClient createRawApiClient()
+    {
+        if (loginResponse.getSid() == null || loginResponse.getServerIP() == null) {
+            configuration.getLogger().warning("The session of the api client is unknown, the responses are parsed"
+                                                      + " by the api client");
+            return null;
+        }
+
+        String fingerprint = null;
+        if (!configuration.isUnsafe()) {
+            try {
+                fingerprint = client.getFingerprintManager().getFingerprintFromFile(loginResponse.getServerIP());
+            }
+            catch (ApiClientException e) {
+                handleException(e, "Failed to get the verified fingerprint of the server");
+            }
+            if (fingerprint == null) {
+                configuration.getLogger().warning("The verified fingerprint of the server is unknown, the responses"
+                                                          + " are parsed by the api client");
+                return null;
+            }
+        }
+
+        try {
+            return new RawApiClient(loginResponse.getServerIP(), loginResponse.getPort(),
+                                    configuration.getCloudMgmtId(), loginResponse.getSid(),
+                                    configuration.getTlsVersion(), configuration.getProxy(), configuration.isUnsafe(),
+                                    fingerprint);
+        }
+        catch (GeneralSecurityException | IllegalArgumentException e) {
+            configuration.getLogger().warning("The raw responses can't be read (" + e.getMessage()
+                                                      + "), the responses are parsed by the api client");
+            return null;
+        }
+    }
+
+    /**
+     * This function writes the api metrics into the result folder and their summary into the log file
+     */
+    private static void reportApiMetrics(){
+
+        if (!apiMetrics.hasCalls()) {
+            return;
+        }
+        configuration.getLogger().info("Api calls metrics:" + System.lineSeparator() + apiMetrics.summaryToString());
+        String directoryPath = configuration.getDirectoryPath();
+        if (directoryPath == null || !new File(directoryPath).isDirectory()) {
+            return;
+        }
+        try {
+            apiMetrics.save(directoryPath);
+        }
+        catch (IOException e) {
+            handleException(e, "Failed to write the api metrics");
+        }
+    }
+
     /***
      * This function gets error response and returns string that contain info about the error
      * @param response {@link ApiResponse}
@@ -1822,10 +2977,16 @@ public class ShowPackageTool {
                 configuration.getLogger().info("tarGzPath: " + tarPath);
             }
 
+            exportProgress.stop();
+            reportApiMetrics();
             freeResources();
 
             if(createTarFile) {
+                //The log file is closed by now, the time of the tar file is only printed
+                long tarStart = System.nanoTime();
                 createTarFile(tarPath, directoryPath);
+                System.out.println(String.format("Creating the tar file took %.2f seconds",
+                                                 (System.nanoTime() - tarStart) / 1e9));
             }
         }
 
@@ -1851,6 +3012,15 @@ public class ShowPackageTool {
      */
     private static void freeResources(){
 
+        if (apiCallScheduler != null) {
+            configuration.getLogger().info("Api calls concurrency settled on " + apiCallScheduler.concurrencyToString());
+            apiCallScheduler.shutdown();
+        }
+        if (inlineLayersExecutor != null) {
+            inlineLayersExecutor.shutdownNow();
+        }
+        configuration.getLogger().info("Objects cache: " + configuration.getObjectsCache().statisticsToString());
+
         configuration.closeAndDeleteFile();
         //Free resources
         for (Handler handle : configuration.getLogger().getHandlers()) {
@@ -1858,7 +3028,90 @@ public class ShowPackageTool {
         }
     }
 
-    private static class ApiCallTask implements Callable<ApiResponse> {
+    /**
+     * This class receives the rules (or sections) of the pages of a rulebase one at a time and adds them to the
+     * rulebase. The last one is kept until the next one is received, since a section which continues in the next page
+     * is split between the pages and its parts are merged first.
+     */
+    private static class RulebaseHandler implements JsonStreamReader.ElementHandler {
+
+        private final PackageContext context;
+        private final String[] types;
+        private final RulebaseType rulebaseType;
+        private final Set<Layer> inlineLayers;
+        private JSONObject lastRule = null;
+        private boolean firstInPage = true;
+
+        RulebaseHandler(PackageContext context, String[] types, RulebaseType rulebaseType, Set<Layer> inlineLayers)
+        {
+            this.context      = context;
+            this.types        = types;
+            this.rulebaseType = rulebaseType;
+            this.inlineLayers = inlineLayers;
+        }
+
+        /**
+         * This function is called before the rules of a page are received
+         */
+        void startPage()
+        {
+            firstInPage = true;
+        }
+
+        @Override
+        public void element(Object element)
+        {
+            JSONObject rule = (JSONObject) element;
+            boolean first = firstInPage;
+            firstInPage = false;
+
+            if (first && lastRule != null
+                    && types[0].equalsIgnoreCase(lastRule.get("type").toString())
+                    && types[0].equalsIgnoreCase(rule.get("type").toString())
+                    && Objects.equals(lastRule.get("uid").toString(), rule.get("uid").toString())) {
+
+                // the section is merged into its part from the previous page
+                ((JSONArray) lastRule.get("rulebase")).addAll((JSONArray) rule.get("rulebase"));
+                lastRule.put("to", rule.get("to"));
+                return;
+            }
+
+            finish();
+            lastRule = rule;
+        }
+
+        /**
+         * This function adds the last rule which was received, it's called after the last page
+         */
+        void finish()
+        {
+            if (lastRule != null) {
+                JSONArray rulebase = new JSONArray();
+                rulebase.add(lastRule);
+                inlineLayers.addAll(addRulebase(context, rulebase, types, rulebaseType));
+                lastRule = null;
+            }
+        }
+    }
+
+    /**
+     * A chunk of nested objects and the 'show-objects' call which requests them
+     */
+    private static class NestedObjectsChunk {
+
+        private final Set<String> uids;
+        private final long submitTime = System.nanoTime();
+        private Future<StreamedResponse> future;
+        //Set by the call before the chunk is queued as completed
+        private volatile StreamedResponse response;
+
+        NestedObjectsChunk(Set<String> uids)
+        {
+            this.uids = uids;
+        }
+    }
+
+    private static class ApiCallTask implements Callable<StreamedResponse> {
 
         private JSONObject payload;
         private String command;
@@ -1870,21 +3123,21 @@ public class ShowPackageTool {
         }
 
         @Override
-        public ApiResponse call()
+        public StreamedResponse call()
         {
-            ApiResponse res;
+            StreamedResponse res;
             try {
-                res = client.apiCall(loginResponse, command, payload);
+                res = streamedApiCall(command, payload);
             }
             catch (Exception e) {
                 res = null;
             }
 
-            if (res == null || !res.isSuccess()) {
-                res = null;
-            }
-
             String log = "Command [" + command + "] uid " + payload.get("uid") + " limit " + payload.get("limit") + " offset " + payload.get("offset") + " ";
+            if (res != null && !res.isSuccess()) {
+                configuration.getLogger().debug(log + "FAILED. " + res.errorToString());
+                return null;
+            }
             configuration.getLogger().debug(log + (res == null ? "FAILED" : "SUCCESSFUL"));
 
             return res;
@@ -0,0 +1,203 @@
+package com.checkpoint.mgmt_api.examples;
+
+import com.checkpoint.mgmt_api.client.ApiResponse;
+import com.checkpoint.mgmt_api.utils.JsonStreamReader;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * This class holds the response of a show command whose arrays (e.g. the rules and the objects dictionary of a
+ * rulebase page) are handed over one element at a time.
+ * A raw response (see {@link RawApiClient}) is kept as its body, in memory or in a temp file if it's large, and parsed
+ * only when it's read, so the json tree of the whole response is never built. A body file is deleted once it's read.
+ * A response which was parsed by the API client library is read from its payload.
+ */
+class StreamedResponse
+{
+    private static final int HTTP_OK = 200;
+
+    private final int statusCode;
+    private final byte[] body;
+    private final File bodyFile;
+    private final long length;
+    private final ApiResponse response;
+
+    /**
+     * @param statusCode the status code of the raw response
+     * @param body the body of the raw response
+     */
+    StreamedResponse(int statusCode, byte[] body)
+    {
+        this.statusCode = statusCode;
+        this.body       = body;
+        this.bodyFile   = null;
+        this.length     = body.length;
+        this.response   = null;
+    }
+
+    /**
+     * @param statusCode the status code of the raw response
+     * @param bodyFile the file which holds the body of the raw response
+     * @param length the length of the body
+     */
+    StreamedResponse(int statusCode, File bodyFile, long length)
+    {
+        this.statusCode = statusCode;
+        this.body       = null;
+        this.bodyFile   = bodyFile;
+        this.length     = length;
+        this.response   = null;
+    }
+
+    /**
+     * @param response a response which was parsed by the API client library
+     */
+    StreamedResponse(ApiResponse response)
+    {
+        this.statusCode = response.getStatusCode();
+        this.body       = null;
+        this.bodyFile   = null;
+        this.length     = -1;
+        this.response   = response;
+    }
+
+    /**
+     * @return true if the command succeeded
+     */
+    boolean isSuccess()
+    {
+        return response != null ? response.isSuccess() : statusCode == HTTP_OK;
+    }
+
+    /**
+     * @return the status code of the response
+     */
+    int getStatusCode()
+    {
+        return statusCode;
+    }
+
+    /**
+     * @return true if the response is kept as its raw body
+     */
+    boolean isRaw()
+    {
+        return response == null;
+    }
+
+    /**
+     * @return the length of the raw body in bytes, -1 if the response was parsed by the API client library
+     */
+    long getLength()
+    {
+        return length;
+    }
+
+    /**
+     * This function reads the response, the elements of the given arrays are handed over one at a time to the
+     * handler of their key.
+     *
+     * @param handlers the handlers of the elements, by the keys of the arrays in the response
+     *
+     * @return the response without the elements of the arrays (e.g. its "from", "to" and "total")
+     * @throws IOException in case a handler failed
+     * @throws ParseException in case the raw body isn't a valid json
+     */
+    JSONObject read(Map<String, JsonStreamReader.ElementHandler> handlers) throws IOException, ParseException
+    {
+        if (response == null) {
+            try (Reader reader = new InputStreamReader(openBody(), StandardCharsets.UTF_8)) {
+                JSONObject content = JsonStreamReader.readArrays(reader, handlers);
+                if (content == null) {
+                    throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+                }
+                return content;
+            }
+            finally {
+                discard();
+            }
+        }
+
+        JSONObject content = new JSONObject(response.getPayload());
+        for (Map.Entry<String, JsonStreamReader.ElementHandler> handler : handlers.entrySet()) {
+            Object array = content.get(handler.getKey());
+            if (array instanceof JSONArray) {
+                content.put(handler.getKey(), new JSONArray());
+                for (Object element : (JSONArray) array) {
+                    handler.getValue().element(element);
+                }
+            }
+        }
+        return content;
+    }
+
+    /**
+     * @return the message, errors, warnings and status code of a failed response
+     */
+    String errorToString()
+    {
+        Object message;
+        Object errors;
+        Object warnings;
+        if (response == null) {
+            Object content;
+            try {
+                content = JSONValue.parse(new String(body != null ? body : Files.readAllBytes(bodyFile.toPath()),
+                                                     StandardCharsets.UTF_8));
+            }
+            catch (IOException e) {
+                content = null;
+            }
+            finally {
+                discard();
+            }
+            JSONObject error = content instanceof JSONObject ? (JSONObject) content : new JSONObject();
+            message  = error.get("message");
+            errors   = error.get("errors");
+            warnings = error.get("warnings");
+        }
+        else {
+            message  = response.getErrorMessage();
+            errors   = response.getErrors();
+            warnings = response.getWarnings();
+        }
+
+        String error = "Message: '" + message + "'.";
+        if (errors != null) {
+            error += " Errors: " + JSONValue.toJSONString(errors);
+        }
+        if (warnings != null) {
+            error += " Warnings: '" + JSONValue.toJSONString(warnings) + "'.";
+        }
+        return error + " Status Code: '" + statusCode + "'";
+    }
+
+    /**
+     * This function deletes the body file of a response which won't be read
+     */
+    void discard()
+    {
+        if (bodyFile != null) {
+            bodyFile.delete();
+        }
+    }
+
+    private InputStream openBody() throws IOException
+    {
+        return body != null ? new ByteArrayInputStream(body) : new BufferedInputStream(new FileInputStream(bodyFile));
+    }
+}
@@ -13,6 +13,7 @@ public class IndexView
     private Session session;
     private String domain;
     private List<PolicyPackage> policyPackages = new ArrayList<>();
+    private JSONArray phases;
 
     /**
      *Set the domain name that will appear on the html page.
@@ -44,6 +45,16 @@ public class IndexView
         this.session = session;
     }
 
+    /**
+     * Set the wall-clock and CPU time of the phases of the run, so the runs can be compared.
+     *
+     * @param phases the phases of the run
+     */
+    public void setPhases(JSONArray phases)
+    {
+        this.phases = phases;
+    }
+
     /**
      * Util function.
      * Creates a json object that represent the class.
@@ -65,6 +76,9 @@ public class IndexView
             }
         }
         jsonIndex.put("policyPackages", policy);
+        if (phases != null) {
+            jsonIndex.put("phases", phases);
+        }
 
         return jsonIndex;
     }
@@ -73,6 +73,16 @@ public class Layer {
         this.domain = domain;
     }
 
+    /**
+     * Get domain layer's type.
+     *
+     * @return The domain type
+     */
+    public String getDomainType()
+    {
+        return domainType;
+    }
+
     /**
      * Set domain layer's type.
      *
@@ -0,0 +1,111 @@
+package com.checkpoint.mgmt_api.utils;
+
+/**
+ * This class limits the number of calls which run at the same time.
+ * The limit is adjusted according to the observed latency and error rate of the calls (AIMD):
+ * it grows by one after a full window of fast successful calls, shrinks by one when the latency rises above the
+ * baseline and is halved on an error. The limit never exceeds the configured ceiling.
+ */
+public class AdaptiveConcurrencyLimiter
+{
+    //The limit is decreased when the smoothed latency is higher than the baseline multiplied by this factor
+    private static final double LATENCY_TOLERANCE = 2.0;
+    //Weight of a new latency sample in the smoothed latency
+    private static final double SMOOTHING_FACTOR  = 0.2;
+
+    private final int maxLimit;
+    private int limit;
+    private int inFlight;
+    private int peakLimit;
+    private int successesSinceLastChange;
+    private double smoothedLatency = -1;
+    private double baselineLatency = -1;
+
+    /**
+     * @param initialLimit the number of concurrent calls to start with
+     * @param maxLimit the ceiling of concurrent calls
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit)
+    {
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent calls must be positive");
+        }
+        this.maxLimit = maxLimit;
+        this.limit    = Math.max(1, Math.min(initialLimit, maxLimit));
+        this.peakLimit = limit;
+    }
+
+    /**
+     * This function blocks until the number of running calls is lower than the current limit.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedException
+    {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * This function releases a call and updates the limit according to its outcome.
+     *
+     * @param latencyNanos the time it took the call to complete
+     * @param success true if the call succeeded
+     */
+    public synchronized void release(long latencyNanos, boolean success)
+    {
+        inFlight--;
+
+        if (!success) {
+            limit = Math.max(1, limit / 2);
+            successesSinceLastChange = 0;
+        }
+        else {
+            double latency = latencyNanos;
+            smoothedLatency = smoothedLatency < 0 ? latency : (1 - SMOOTHING_FACTOR) * smoothedLatency + SMOOTHING_FACTOR * latency;
+            baselineLatency = baselineLatency < 0 ? smoothedLatency : Math.min(baselineLatency, smoothedLatency);
+
+            if (smoothedLatency > baselineLatency * LATENCY_TOLERANCE) {
+                if (limit > 1) {
+                    limit--;
+                }
+                //Let the baseline follow a server which became slower, otherwise the limit never grows again
+                baselineLatency = smoothedLatency / LATENCY_TOLERANCE;
+                successesSinceLastChange = 0;
+            }
+            else if (++successesSinceLastChange >= limit && limit < maxLimit) {
+                limit++;
+                peakLimit = Math.max(peakLimit, limit);
+                successesSinceLastChange = 0;
+            }
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * @return the current number of allowed concurrent calls
+     */
+    public synchronized int getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * @return the highest number of allowed concurrent calls that was reached
+     */
+    public synchronized int getPeakLimit()
+    {
+        return peakLimit;
+    }
+
+    /**
+     * @return the ceiling of concurrent calls
+     */
+    public int getMaxLimit()
+    {
+        return maxLimit;
+    }
+}
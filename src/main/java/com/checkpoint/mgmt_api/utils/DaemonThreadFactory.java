@@ -0,0 +1,29 @@
+package com.checkpoint.mgmt_api.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class creates numbered daemon threads, so a pool which wasn't shut down doesn't keep the tool running.
+ */
+public class DaemonThreadFactory implements ThreadFactory
+{
+    private final String namePrefix;
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    /**
+     * @param namePrefix the prefix of the threads' names
+     */
+    public DaemonThreadFactory(String namePrefix)
+    {
+        this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -1,14 +1,23 @@
 package com.checkpoint.mgmt_api.utils;
 
 import com.checkpoint.mgmt_api.objects.Layer;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
 import org.json.simple.JSONValue;
+import org.json.simple.parser.ParseException;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is a utility class that builds html pages based on the given parameters
@@ -68,13 +77,17 @@ public enum HtmlUtils {
         //In case the html file is rulebase needed info on the rulebase
         private RulebaseData rulebaseData;
         //In case the html file is rulebase needed the map to connect between name to uid
-        private Map<String,String> uidToName;
+        private JSONStreamAware uidToName;
         //The temp file contains the json objects
         private String objectsFileName;
 
         private List<String> templateLines;
         private String htmlFileName;
         private String jsonFileName;
+        //In case the html file is rulebase, the script of the shared uid to name dictionary (null if it's inlined)
+        private String uidToNameScript;
+        //In case the html file is rulebase, the name (without suffix) of the html file that the chunks are named after
+        private String baseFileName;
 
 
         FileDetails(String objectsFileName, List<String> templateLines, String htmlFileName, String jsonFileName){
@@ -82,7 +95,7 @@ public enum HtmlUtils {
         }
 
         FileDetails(String objectsFileName, List<String> templateLines, String htmlFileName,String jsonFileName,
-                    Map<String,String> uidToName, RulebaseData rulebaseData){
+                    JSONStreamAware uidToName, RulebaseData rulebaseData){
             this.objectsFileName = objectsFileName;
             this.templateLines = templateLines;
             this.uidToName = uidToName;
@@ -108,7 +121,7 @@ public enum HtmlUtils {
             return objectsFileName;
         }
 
-        public Map<String, String> getUidToName()
+        public JSONStreamAware getUidToName()
         {
             return uidToName;
         }
@@ -123,6 +136,16 @@ public enum HtmlUtils {
             return jsonFileName ;
         }
 
+        public String getUidToNameScript()
+        {
+            return uidToNameScript;
+        }
+
+        public String getBaseFileName()
+        {
+            return baseFileName;
+        }
+
     }
 
     //========================================//
@@ -137,25 +160,36 @@ public enum HtmlUtils {
 
     public static final String[] ALL_TEMPLATES = new String[]{INDEX_HTML_TEMPLATE, OBJECTS_HTML_TEMPLATE, RULEBASE_HTML_TEMPLATE};
 
-    //Temp file that holds the objects info
-    private static final String OBJECTS_FILE  = "objects.txt";
-    //Temp file that holds the rulbase info
-    private static final String RULEBASE_FILE = "rulebase.txt";
-
     //Format of place holder in template files
     private static final String TEMPLATE_PLACE_HOLDER  = "/*<%%>*/";
+    //Place holder of the script of the shared uid to name dictionary in the rulebase template
+    private static final String UID_TO_NAME_PLACE_HOLDER = "<!--<%uid_to_name%>-->";
 
     //Suffix
     private static final String HTML_SUFFIX   = ".html";
     private static final String JSON_SUFFIX   = ".json";
+    private static final String JS_SUFFIX     = ".js";
+    private static final String CHUNK_INFIX   = "_chunk-";
+    private static final String INDEX_SUFFIX  = "_index" + JSON_SUFFIX;
 
     //Set encoding format
     private static final Charset ENCODING    = StandardCharsets.UTF_8;
-    //Buffer reader size
-    private static final int BUFFER_SIZE = 1024;
+    //Buffer size of the html writer
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     private String resultFolderPath;
     private Map<String, List<String>> templatesMap = new HashMap<>();
+    //Locks of the html files, a file which is shared by several packages is written by one package at a time
+    private final ConcurrentHashMap<String, Object> fileLocks = new ConcurrentHashMap<>();
+    //The tar file which the files are added to once they're complete, null if the tar file is created at the end
+    private StreamingTarGZ archive;
+    //True if the rulebase pages load the uid to name dictionary of the package from a shared script
+    private boolean sharedUidToName = false;
+    //The number of rows in a chunk of a rulebase page, 0 if the rows aren't split into chunks
+    private int layerChunkSize = 0;
+    //The chunk files of the rulebase pages in the previous result folder, by the name of their page
+    private String previousChunksFolder;
+    private Map<String, List<String>> previousChunkFiles;
 
     /**
      * This function creates a rulebase html page by replacing the dynamic content in the template with the relevant information
@@ -164,13 +198,15 @@ public enum HtmlUtils {
      * @param packageName package's name
      * @param domain domain name
      * @param rulebaseType rulebase type (THREAT/IPS/ACCESS/NAT)
+     * @param rulebaseFile the temp file which holds the rulebase
+     * @param uidToName the names of the objects which the rules reference
      * @param failedCreatingRulbase True if the html file will show an error.
      *
      * @throws IOException
      */
 
     public void writeRulebaseHTML(String layerName, String packageName, String domain, String apiVersion,
-                                  String rulebaseType ,Map<String,String> uidToName,
+                                  String rulebaseType, String rulebaseFile, JSONStreamAware uidToName,
                                   Set<Layer> inlineLayers, boolean failedCreatingRulbase, boolean showRuleUid) throws IOException {
 
         //In case of nat set the domain name to be 'Management server'
@@ -182,19 +218,152 @@ public enum HtmlUtils {
                 "\"domain\" : \"" + domain + "\", \"package\" : \""
                 + packageName + "\", " + "\"layer\" : \"" + layerName + "\", \"type\" : \"" + rulebaseType + "\"}";
 
-        // Sanitize filenames to prevent "File name too long" errors
-        String baseFileName = layerName + "-" + domain;
-        String sanitizedBaseFileName = FileNameUtils.sanitizeFileName(baseFileName);
+        String sanitizedBaseFileName = getRulebaseFileBaseName(layerName, domain);
 
         String htmlFileName = resultFolderPath + sanitizedBaseFileName + HTML_SUFFIX;
         String jsonFileName = resultFolderPath + sanitizedBaseFileName + JSON_SUFFIX;
-        String objectsFile =  resultFolderPath + RULEBASE_FILE;
-        FileDetails details = new FileDetails(objectsFile,getRulebaseHtmlTemplateLines(),htmlFileName, jsonFileName,
+        FileDetails details = new FileDetails(rulebaseFile,getRulebaseHtmlTemplateLines(),htmlFileName, jsonFileName,
                                               uidToName, new RulebaseData(rulebase, inlineLayers, failedCreatingRulbase));
+        if (sharedUidToName) {
+            details.uidToNameScript = getUidToNameFileBaseName(packageName) + JS_SUFFIX;
+        }
+        details.baseFileName = sanitizedBaseFileName;
         createHtmlFile(details, FileType.RULEBASE);
 
     }
 
+    /**
+     * This function returns the name (without suffix) of the html and json files of a given layer
+     *
+     * @param layerName layer's name
+     * @param domain domain name
+     * @return the file name
+     */
+    public String getRulebaseFileBaseName(String layerName, String domain)
+    {
+        //In case of nat set the domain name to be 'Management server'
+        if(domain == null || domain.isEmpty()) {
+            domain = "Management server";
+        }
+        // Sanitize filenames to prevent "File name too long" errors
+        return FileNameUtils.sanitizeFileName(layerName + "-" + domain);
+    }
+
+    /**
+     * This function returns the name (without suffix) of the html and json files of the objects of a given package
+     *
+     * @param packageName package's name
+     * @return the file name
+     */
+    public String getObjectsFileBaseName(String packageName)
+    {
+        return FileNameUtils.sanitizeFileName(packageName + "_objects");
+    }
+
+    /**
+     * This function returns the name (without suffix) of the shared uid to name dictionary of a given package
+     *
+     * @param packageName package's name
+     * @return the file name
+     */
+    public String getUidToNameFileBaseName(String packageName)
+    {
+        return FileNameUtils.sanitizeFileName(packageName + "_uid_to_name");
+    }
+
+    /**
+     * This function writes the uid to name dictionary of a package into a script which is shared by the rulebase
+     * pages of the package (see {@link #setSharedUidToName})
+     *
+     * @param packageName package's name
+     * @param uidToName the dictionary
+     * @throws IOException
+     */
+    public void writeUidToNameScript(String packageName, JSONStreamAware uidToName) throws IOException
+    {
+        String scriptFileName = resultFolderPath + getUidToNameFileBaseName(packageName) + JS_SUFFIX;
+        synchronized (getFileLock(scriptFileName)) {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(scriptFileName),
+                                                                           ENCODING), BUFFER_SIZE)) {
+                writer.write("var uid_to_name = ");
+                uidToName.writeJSONString(writer);
+                writer.write(";\n");
+            }
+            archiveFiles(scriptFileName);
+        }
+    }
+
+    /**
+     * This function returns the json file of a given file name in the result folder
+     *
+     * @param baseFileName the file name (without suffix)
+     * @return the path of the json file
+     */
+    public String getJsonFileName(String baseFileName)
+    {
+        return resultFolderPath + baseFileName + JSON_SUFFIX;
+    }
+
+    /**
+     * This function copies the html and json files of a layer from a previous result folder
+     *
+     * @param baseFileName the file name (without suffix)
+     * @param previousFolderPath the previous result folder
+     * @throws IOException
+     */
+    public void copyRulebaseFiles(String baseFileName, String previousFolderPath) throws IOException
+    {
+        String htmlFileName = resultFolderPath + baseFileName + HTML_SUFFIX;
+        //The chunks of the page, in case its rows were split
+        List<String> chunkFileNames = getPreviousChunkFiles(previousFolderPath, baseFileName);
+        synchronized (getFileLock(htmlFileName)) {
+            Files.copy(new File(previousFolderPath, baseFileName + HTML_SUFFIX).toPath(),
+                       new File(htmlFileName).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(new File(previousFolderPath, baseFileName + JSON_SUFFIX).toPath(),
+                       new File(getJsonFileName(baseFileName)).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            archiveFiles(htmlFileName, getJsonFileName(baseFileName));
+
+            for (String chunkFileName : chunkFileNames) {
+                Files.copy(new File(previousFolderPath, chunkFileName).toPath(),
+                           new File(resultFolderPath + chunkFileName).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                archiveFiles(resultFolderPath + chunkFileName);
+            }
+        }
+    }
+
+    /**
+     * This function returns the chunk files of a rulebase page in a previous result folder.
+     * The folder is listed once, on the first call, instead of once for every page which is copied from it.
+     *
+     * @param previousFolderPath the previous result folder
+     * @param baseFileName the file name of the page (without suffix)
+     * @return the names of the chunk files of the page
+     */
+    private synchronized List<String> getPreviousChunkFiles(String previousFolderPath, String baseFileName)
+    {
+        if (!previousFolderPath.equals(previousChunksFolder)) {
+            previousChunkFiles = new HashMap<>();
+            String[] fileNames = new File(previousFolderPath).list();
+            if (fileNames != null) {
+                for (String fileName : fileNames) {
+                    int chunkIndex = fileName.lastIndexOf(CHUNK_INFIX);
+                    if (chunkIndex > 0 && fileName.endsWith(JS_SUFFIX)) {
+                        String pageFileName = fileName.substring(0, chunkIndex);
+                        List<String> chunkFileNames = previousChunkFiles.get(pageFileName);
+                        if (chunkFileNames == null) {
+                            chunkFileNames = new ArrayList<>();
+                            previousChunkFiles.put(pageFileName, chunkFileNames);
+                        }
+                        chunkFileNames.add(fileName);
+                    }
+                }
+            }
+            previousChunksFolder = previousFolderPath;
+        }
+        List<String> chunkFileNames = previousChunkFiles.get(baseFileName);
+        return chunkFileNames == null ? Collections.<String>emptyList() : chunkFileNames;
+    }
+
     /**
      * This function creates the html file according to the given type file
      * @param details the details for the html file
@@ -203,35 +372,86 @@ public enum HtmlUtils {
      */
     public void createHtmlFile(FileDetails details, FileType fileType) throws IOException
     {
-        try (PrintStream writer = new PrintStream(new File(details.getHtmlFileName()))) {
-
-            for (String line : details.getTemplateLines()) {
-                if (!line.contains(TEMPLATE_PLACE_HOLDER))
-                    writer.println(line);
-                else {
-                    if (fileType == FileType.OBJECTS) {
-                        setDataInHtmlFile(writer, details);
+        synchronized (getFileLock(details.getHtmlFileName())) {
+            try (FileOutputStream htmlStream = new FileOutputStream(details.getHtmlFileName());
+                 PrintStream writer = new PrintStream(new BufferedOutputStream(htmlStream, BUFFER_SIZE))) {
+
+                for (String line : details.getTemplateLines()) {
+                    if (line.contains(UID_TO_NAME_PLACE_HOLDER)) {
+                        if (details.getUidToNameScript() != null) {
+                            writer.println(line.replace(UID_TO_NAME_PLACE_HOLDER, "<script src=\"./"
+                                    + details.getUidToNameScript() + "\" charset=\"UTF-8\"></script>"));
+                        }
                     }
-                    else if (fileType == FileType.RULEBASE) {
-                        setRulebaseHtmlFile(writer, details);
+                    else if (!line.contains(TEMPLATE_PLACE_HOLDER))
+                        writer.println(line);
+                    else {
+                        if (fileType == FileType.OBJECTS) {
+                            setObjectsHtmlFile(writer, htmlStream.getChannel(), details);
+                        }
+                        else if (fileType == FileType.RULEBASE) {
+                            setRulebaseHtmlFile(writer, htmlStream.getChannel(), details);
+                        }
                     }
                 }
             }
+            archiveFiles(details.getHtmlFileName(), details.getJsonFileName());
+        }
+    }
+
+    /**
+     * This function adds complete files to the tar file, in case the tar file is built during the run
+     * @param fileNames the files
+     * @throws IOException
+     */
+    private void archiveFiles(String... fileNames) throws IOException
+    {
+        if (archive == null) {
+            return;
+        }
+        for (String fileName : fileNames) {
+            archive.addFile(fileName);
+        }
+    }
+
+    /**
+     * This function returns the lock of a given html file
+     * @param htmlFileName the html file
+     * @return the lock
+     */
+    private Object getFileLock(String htmlFileName)
+    {
+        Object lock = fileLocks.get(htmlFileName);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = fileLocks.putIfAbsent(htmlFileName, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
         }
+        return lock;
     }
 
     /**
      * This function writes the info of the rulbase to the html file
      * @param htmlFile The html to write to
+     * @param htmlChannel The channel of the html file
      * @param details {@link FileDetails} contain info about the html file
      * @throws IOException
      */
-    public void setRulebaseHtmlFile(PrintStream htmlFile , FileDetails details) throws IOException{
+    public void setRulebaseHtmlFile(PrintStream htmlFile, FileChannel htmlChannel, FileDetails details)
+            throws IOException{
 
         htmlFile.println("\t\tvar rulebase = " + details.getRulebaseData().getRulebaseDataContent() + ";");
-        htmlFile.print("\t\tvar uid_to_name = ");
-        htmlFile.print(JSONValue.toJSONString(details.getUidToName()));
-        htmlFile.println(";");
+        //A shared dictionary is loaded by the script which replaced its place holder
+        if (details.getUidToNameScript() == null) {
+            htmlFile.print("\t\tvar uid_to_name = ");
+            //The dictionary is written straight to the file, without building its json string
+            Writer uidToNameWriter = new BufferedWriter(new OutputStreamWriter(htmlFile, ENCODING));
+            details.getUidToName().writeJSONString(uidToNameWriter);
+            uidToNameWriter.flush();
+            htmlFile.println(";");
+        }
 
         htmlFile.print("\t\tvar failed_creating_layer = ");
         htmlFile.print(JSONValue.toJSONString(details.getRulebaseData().isFailedCreatingRulebase()));
@@ -241,65 +461,223 @@ public enum HtmlUtils {
         htmlFile.print(JSONValue.toJSONString(details.getRulebaseData().getInlineLayerUidToFileNameMap()));
         htmlFile.println(";");
 
-        setDataInHtmlFile(htmlFile, details);
+        JSONObject chunks = null;
+        if (layerChunkSize > 0) {
+            chunks = writeRulebaseChunks(details);
+        }
+        if (chunks != null) {
+            //The page loads its rows from the chunks
+            htmlFile.println("\t\tvar data_chunks = " + chunks.toJSONString() + ";");
+        }
+        setDataInHtmlFile(htmlFile, htmlChannel, details, chunks == null);
     }
 
     /**
-     * This function writes the data to the html file
-     * @param htmlFile The html to write to
+     * This function splits the rows of a rulebase into chunk scripts (see {@link #setLayerChunkSize}).
+     * Every chunk calls rulebaseChunkLoaded(index, lastRule, rows) of the page once it's loaded, where lastRule is the
+     * number and the state of the last threat rule before the chunk (the exceptions of a rule can be in the next chunk).
      * @param details {@link FileDetails} contain info about the html file
+     * @return the index of the chunks, or null if the rows fit in a single chunk
      * @throws IOException
      */
-    private void setDataInHtmlFile(PrintStream htmlFile, FileDetails details) throws IOException
+    private JSONObject writeRulebaseChunks(FileDetails details) throws IOException
     {
-        htmlFile.print("\t\tvar data = ");
-        try(FileInputStream reader = new FileInputStream(details.getObjectsFileName());
-            PrintStream jsonWriter = new PrintStream(new File(details.getJsonFileName()))) {
+        if (new File(details.getObjectsFileName()).length() == 0) {
+            return null;
+        }
+        RulebaseChunksWriter chunksWriter = new RulebaseChunksWriter(details.getBaseFileName());
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(details.getObjectsFileName()),
+                                                                      ENCODING), BUFFER_SIZE)) {
+            JsonStreamReader.readArray(reader, chunksWriter);
+        }
+        catch (ParseException e) {
+            throw new IOException("Failed to read the rulebase of '" + details.getHtmlFileName() + "'", e);
+        }
+        return chunksWriter.finish();
+    }
 
-            //If the temp file is empty return
-            if (reader.available() == 0){
-                return;
+    /**
+     * This class receives the rows of a rulebase one at a time and writes them into chunk scripts
+     */
+    private class RulebaseChunksWriter implements JsonStreamReader.ElementHandler
+    {
+        private final String baseFileName;
+        private final JSONArray chunkRows = new JSONArray();
+        private final JSONArray chunkFiles = new JSONArray();
+        private int rows = 0;
+        private Boolean showHits = null;
+        //The last threat rule so far, and the last threat rule before the rows of the current chunk
+        private JSONObject lastRule = new JSONObject();
+        private JSONObject chunkLastRule = lastRule;
+
+        RulebaseChunksWriter(String baseFileName)
+        {
+            this.baseFileName = baseFileName;
+        }
+
+        @Override
+        public void element(Object element) throws IOException
+        {
+            JSONObject row = (JSONObject) element;
+            if (chunkRows.isEmpty()) {
+                chunkLastRule = lastRule;
             }
+            chunkRows.add(row);
+            rows++;
 
-            //Read from temp file until get to EOF and write the info to the html file and json file.
-            int resRead;
-            byte[] buffer = new byte[BUFFER_SIZE];
-            while((resRead = reader.read(buffer)) != -1)
-            {
-                if (resRead < BUFFER_SIZE){
-                    htmlFile.write(Arrays.copyOfRange(buffer,0,resRead));
-                    jsonWriter.write(Arrays.copyOfRange(buffer,0,resRead));
-                }
-                else {
-                    htmlFile.write(buffer);
-                    jsonWriter.write(buffer);
-                }
-                htmlFile.flush();
-                jsonWriter.flush();
+            Object type = row.get("type");
+            if (showHits == null && "access-rule".equals(type)) {
+                //The hits column is shown according to the first access rule, as the page does
+                showHits = row.get("hits") != null;
+            }
+            if ("threat-rule".equals(type)) {
+                lastRule = new JSONObject();
+                lastRule.put("rule-number", row.get("rule-number"));
+                lastRule.put("enabled", row.get("enabled"));
+            }
+
+            if (chunkRows.size() == layerChunkSize) {
+                writeChunk();
+            }
+        }
+
+        /**
+         * @return the index of the chunks, or null if no chunk was written (the rows fit in a single chunk)
+         * @throws IOException
+         */
+        JSONObject finish() throws IOException
+        {
+            if (chunkFiles.isEmpty()) {
+                return null;
+            }
+            if (!chunkRows.isEmpty()) {
+                writeChunk();
+            }
+            JSONObject index = new JSONObject();
+            index.put("rows", rows);
+            index.put("chunk-size", layerChunkSize);
+            index.put("show-hits", showHits != null && showHits);
+            index.put("files", chunkFiles);
+            return index;
+        }
+
+        private void writeChunk() throws IOException
+        {
+            String chunkFileName = baseFileName + CHUNK_INFIX + chunkFiles.size() + JS_SUFFIX;
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(resultFolderPath + chunkFileName), ENCODING), BUFFER_SIZE)) {
+                writer.write("rulebaseChunkLoaded(" + chunkFiles.size() + ", ");
+                chunkLastRule.writeJSONString(writer);
+                writer.write(", ");
+                chunkRows.writeJSONString(writer);
+                writer.write(");\n");
+            }
+            archiveFiles(resultFolderPath + chunkFileName);
+            chunkFiles.add(chunkFileName);
+            chunkRows.clear();
+        }
+    }
+
+    /**
+     * This function writes the objects and their search index to the html file.
+     * The index is also written next to the json file of the objects (&lt;objects&gt;_index.json).
+     * @param htmlFile The html to write to
+     * @param htmlChannel The channel of the html file
+     * @param details {@link FileDetails} contain info about the html file
+     * @throws IOException
+     */
+    private void setObjectsHtmlFile(PrintStream htmlFile, FileChannel htmlChannel, FileDetails details)
+            throws IOException
+    {
+        ObjectsSearchIndex index = new ObjectsSearchIndex();
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(details.getObjectsFileName()),
+                                                                      ENCODING), BUFFER_SIZE)) {
+            JsonStreamReader.readArray(reader, index);
+        }
+        catch (ParseException e) {
+            throw new IOException("Failed to read the objects of '" + details.getHtmlFileName() + "'", e);
+        }
+        index.build();
+
+        String jsonFileName = details.getJsonFileName();
+        String indexFileName = jsonFileName.substring(0, jsonFileName.length() - JSON_SUFFIX.length()) + INDEX_SUFFIX;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexFileName), ENCODING),
+                                                BUFFER_SIZE)) {
+            index.writeJSONString(writer);
+        }
+        archiveFiles(indexFileName);
+
+        htmlFile.print("\t\tvar objects_index = ");
+        Writer indexWriter = new BufferedWriter(new OutputStreamWriter(htmlFile, ENCODING));
+        index.writeJSONString(indexWriter);
+        indexWriter.flush();
+        htmlFile.println(";");
+
+        setDataInHtmlFile(htmlFile, htmlChannel, details, true);
+    }
+
+    /**
+     * This function writes the data to the html file and to the json file.
+     * The data is transferred from the temp file by the channels, without passing through the heap.
+     * @param htmlFile The html to write to
+     * @param htmlChannel The channel of the html file
+     * @param details {@link FileDetails} contain info about the html file
+     * @param inlineData false if the data is loaded by the page from chunks, so only the json file gets it
+     * @throws IOException
+     */
+    private void setDataInHtmlFile(PrintStream htmlFile, FileChannel htmlChannel, FileDetails details,
+                                   boolean inlineData) throws IOException
+    {
+        htmlFile.print("\t\tvar data = ");
+        if (!inlineData) {
+            htmlFile.print("[]");
+        }
+        try(FileChannel reader = FileChannel.open(Paths.get(details.getObjectsFileName()), StandardOpenOption.READ);
+            FileChannel jsonWriter = FileChannel.open(Paths.get(details.getJsonFileName()), StandardOpenOption.WRITE,
+                                                      StandardOpenOption.CREATE,
+                                                      StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            //Write what was buffered so far, the data is appended right after it
+            htmlFile.flush();
+            if (inlineData) {
+                transferFile(reader, htmlChannel);
             }
+            transferFile(reader, jsonWriter);
         }
         finally {
             //Close the list
             htmlFile.println(";");
-            //Delete the info from the temp file
-            try(PrintWriter writer = new PrintWriter(details.getObjectsFileName())) {
-                writer.print("");
-            }
         }
     }
+
+    /**
+     * This function copies the whole content of a given file to the current position of another file
+     * @param source the file to copy
+     * @param target the file to copy to
+     * @throws IOException
+     */
+    private void transferFile(FileChannel source, FileChannel target) throws IOException
+    {
+        long size = source.size();
+        long position = 0;
+        while (position < size) {
+            position += source.transferTo(position, size - position, target);
+        }
+    }
+
     /**
      *This function creates the objects html page by replacing the dynamic content in the template files with the relevant
      *  information
      *
      * @param packageName the package's name that the objects belong to
+     * @param objectsFile the temp file which holds the objects
      *
      * @throws FileNotFoundException
      * @throws UnsupportedEncodingException
      */
-    public void writeObjectsHTML(String packageName) throws IOException
+    public void writeObjectsHTML(String packageName, String objectsFile) throws IOException
     {
-        String objectsFile = resultFolderPath + OBJECTS_FILE;
-        String sanitizedPackageName = FileNameUtils.sanitizeFileName(packageName + "_objects");
+        String sanitizedPackageName = getObjectsFileBaseName(packageName);
         String htmlFileName = resultFolderPath + sanitizedPackageName + HTML_SUFFIX;
         String jsonFileName = resultFolderPath + sanitizedPackageName + JSON_SUFFIX;
         FileDetails details = new FileDetails(objectsFile, getObjectsHtmlTemplateLines(), htmlFileName, jsonFileName);
@@ -361,6 +739,12 @@ public enum HtmlUtils {
             replaceTemplate(stringToReplace, objectsHtmlTemplateLines, htmlWriter, jsonWriter);
         }
 
+        try {
+            archiveFiles(resultFolderPath + pageName + HTML_SUFFIX, resultFolderPath + pageName + JSON_SUFFIX);
+        }
+        catch (IOException e) {
+            return false;
+        }
         return true;
     }
 
@@ -400,6 +784,35 @@ public enum HtmlUtils {
         }
     }
 
+    /**
+     * Set the tar file which the files are added to once they're complete
+     *
+     * @param archive the tar file, or null if the tar file is created at the end of the run
+     */
+    public void setArchive(StreamingTarGZ archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Set whether the rulebase pages load the uid to name dictionary of the package from a shared script
+     * (see {@link #writeUidToNameScript}) instead of having it inlined
+     *
+     * @param sharedUidToName true to use a shared script
+     */
+    public void setSharedUidToName(boolean sharedUidToName) {
+        this.sharedUidToName = sharedUidToName;
+    }
+
+    /**
+     * Set the number of rows in a chunk of a rulebase page. The rows of a larger rulebase are written into chunk
+     * scripts next to the page, which the page loads one at a time.
+     *
+     * @param layerChunkSize the number of rows, 0 to keep all the rows in the page
+     */
+    public void setLayerChunkSize(int layerChunkSize) {
+        this.layerChunkSize = layerChunkSize;
+    }
+
     /**
      * Set the folder path
      *
@@ -0,0 +1,81 @@
+package com.checkpoint.mgmt_api.utils;
+
+import org.json.simple.JSONStreamAware;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class writes a json array into a file, one element at a time.
+ * The elements are serialized straight into a buffered stream (no intermediate string per element), and whether a
+ * separator is needed is kept in memory, so writing an element doesn't cost a system call.
+ * Once the array is ended and its content was used, the writer can be reset in order to write a new array.
+ */
+public class JsonArrayWriter implements Closeable
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileOutputStream fileStream;
+    private final FileChannel channel;
+    private final Writer writer;
+    private boolean firstElement = true;
+
+    /**
+     * @param fileName the file to write the array to, the file is truncated
+     * @throws IOException in case the file couldn't be opened
+     */
+    public JsonArrayWriter(String fileName) throws IOException
+    {
+        fileStream = new FileOutputStream(fileName);
+        channel    = fileStream.getChannel();
+        writer     = new OutputStreamWriter(new BufferedOutputStream(fileStream, BUFFER_SIZE), StandardCharsets.UTF_8);
+        writer.write('[');
+    }
+
+    /**
+     * This function appends an element to the array
+     *
+     * @param element the element
+     * @throws IOException in case the element couldn't be written
+     */
+    public void write(JSONStreamAware element) throws IOException
+    {
+        if (!firstElement) {
+            writer.write(',');
+        }
+        element.writeJSONString(writer);
+        firstElement = false;
+    }
+
+    /**
+     * This function ends the array and writes all the buffered data to the file, so the file can be read
+     *
+     * @throws IOException in case the data couldn't be written
+     */
+    public void endArray() throws IOException
+    {
+        writer.write(']');
+        writer.flush();
+    }
+
+    /**
+     * This function empties the file and starts a new array
+     *
+     * @throws IOException in case the file couldn't be truncated
+     */
+    public void reset() throws IOException
+    {
+        writer.flush();
+        channel.truncate(0);
+        channel.position(0);
+        firstElement = true;
+        writer.write('[');
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        writer.close();
+    }
+}
@@ -0,0 +1,187 @@
+package com.checkpoint.mgmt_api.utils;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * This class reads a large json array one element at a time.
+ * Only the element which is being read is built in memory, every element is handed over once it's complete and can
+ * be released by the caller, so the whole array is never held as a single tree.
+ */
+public class JsonStreamReader
+{
+    /**
+     * This interface receives the elements of the array
+     */
+    public interface ElementHandler
+    {
+        void element(Object element) throws IOException;
+    }
+
+    /**
+     * This function reads a json array which is the whole content of a given reader
+     *
+     * @param reader the reader
+     * @param handler receives the elements of the array
+     *
+     * @throws IOException in case the content couldn't be read
+     * @throws ParseException in case the content isn't a valid json
+     */
+    public static void readArray(Reader reader, ElementHandler handler) throws IOException, ParseException
+    {
+        new JSONParser().parse(reader, new StreamingContentHandler(handler, null));
+    }
+
+    /**
+     * This function reads a json object whose given key holds an array, the elements of the array are handed over
+     * one at a time and the rest of the object is returned.
+     *
+     * @param reader the reader
+     * @param key the key of the array in the object
+     * @param handler receives the elements of the array
+     *
+     * @return the object, without the elements of the array
+     * @throws IOException in case the content couldn't be read
+     * @throws ParseException in case the content isn't a valid json
+     */
+    public static JSONObject readArray(Reader reader, String key, ElementHandler handler)
+            throws IOException, ParseException
+    {
+        return readArrays(reader, Collections.singletonMap(key, handler));
+    }
+
+    /**
+     * This function reads a json object whose given keys hold arrays (e.g. the rulebase and the objects dictionary
+     * of a rulebase page), the elements of every array are handed over one at a time to the handler of its key and
+     * the rest of the object is returned.
+     *
+     * @param reader the reader
+     * @param handlers the handlers of the elements, by the keys of the arrays in the object
+     *
+     * @return the object, without the elements of the arrays
+     * @throws IOException in case the content couldn't be read
+     * @throws ParseException in case the content isn't a valid json
+     */
+    public static JSONObject readArrays(Reader reader, Map<String, ElementHandler> handlers)
+            throws IOException, ParseException
+    {
+        StreamingContentHandler contentHandler = new StreamingContentHandler(null, handlers);
+        new JSONParser().parse(reader, contentHandler);
+        return contentHandler.root instanceof JSONObject ? (JSONObject) contentHandler.root : null;
+    }
+
+    /**
+     * This class builds the json values from the parser events, except for the elements of the streamed arrays which
+     * are handed over instead of being added to the arrays.
+     */
+    private static class StreamingContentHandler implements ContentHandler
+    {
+        //The handler of a root array, or the handlers of the arrays of a root object by their keys
+        private final ElementHandler rootHandler;
+        private final Map<String, ElementHandler> handlers;
+
+        private final Deque<Object> containers = new ArrayDeque<>();
+        private final Deque<String> keys = new ArrayDeque<>();
+        private JSONArray streamedArray = null;
+        private ElementHandler handler = null;
+        private Object root = null;
+
+        StreamingContentHandler(ElementHandler rootHandler, Map<String, ElementHandler> handlers)
+        {
+            this.rootHandler = rootHandler;
+            this.handlers    = handlers;
+        }
+
+        @Override
+        public void startJSON()
+        {
+        }
+
+        @Override
+        public void endJSON()
+        {
+        }
+
+        @Override
+        public boolean startObject()
+        {
+            containers.push(new JSONObject());
+            return true;
+        }
+
+        @Override
+        public boolean endObject() throws IOException
+        {
+            addValue(containers.pop());
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key)
+        {
+            keys.push(key);
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry()
+        {
+            keys.pop();
+            return true;
+        }
+
+        @Override
+        public boolean startArray()
+        {
+            JSONArray array = new JSONArray();
+            if (handlers == null ? containers.isEmpty()
+                                 : containers.size() == 1 && handlers.containsKey(keys.peek())) {
+                streamedArray = array;
+                handler = handlers == null ? rootHandler : handlers.get(keys.peek());
+            }
+            containers.push(array);
+            return true;
+        }
+
+        @Override
+        public boolean endArray() throws IOException
+        {
+            addValue(containers.pop());
+            return true;
+        }
+
+        @Override
+        public boolean primitive(Object value) throws IOException
+        {
+            addValue(value);
+            return true;
+        }
+
+        private void addValue(Object value) throws IOException
+        {
+            Object parent = containers.peek();
+            if (parent == null) {
+                root = value;
+            }
+            else if (parent == streamedArray) {
+                handler.element(value);
+            }
+            else if (parent instanceof JSONArray) {
+                ((JSONArray) parent).add(value);
+            }
+            else {
+                ((JSONObject) parent).put(keys.peek(), value);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.checkpoint.mgmt_api.utils;
+
+/**
+ * This class counts latencies in log-linear buckets, so percentiles can be estimated without keeping every sample.
+ * Every power of 2 microseconds is split into {@value #SUB_BUCKETS} buckets, which keeps the error of a percentile
+ * within about 6%. Latencies up to {@value #SUB_BUCKETS} microseconds are counted exactly.
+ * The class isn't thread safe.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 4;
+    //Enough buckets for any non negative long
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long totalMicros;
+    private long maxMicros;
+
+    /**
+     * @param latencyNanos a latency to count
+     */
+    public void record(long latencyNanos)
+    {
+        long micros = Math.max(0, latencyNanos / 1000);
+        counts[bucketOf(micros)]++;
+        count++;
+        totalMicros += micros;
+        maxMicros = Math.max(maxMicros, micros);
+    }
+
+    /**
+     * @return the number of latencies which were counted
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the mean latency in milliseconds
+     */
+    public double getMeanMillis()
+    {
+        return count == 0 ? 0 : totalMicros / 1000.0 / count;
+    }
+
+    /**
+     * @return the highest latency in milliseconds
+     */
+    public double getMaxMillis()
+    {
+        return maxMicros / 1000.0;
+    }
+
+    /**
+     * This function estimates a percentile of the latencies
+     *
+     * @param percentile the percentile (e.g. 95)
+     * @return the latency in milliseconds which the given percentage of the latencies didn't exceed
+     *         (the upper bound of its bucket, at most the highest latency)
+     */
+    public double getPercentileMillis(double percentile)
+    {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), maxMicros) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    private static int bucketOf(long micros)
+    {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket)
+    {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
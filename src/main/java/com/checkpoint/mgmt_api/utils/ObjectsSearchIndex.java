@@ -0,0 +1,208 @@
+package com.checkpoint.mgmt_api.utils;
+
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
+import org.json.simple.JSONValue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.Collator;
+import java.util.*;
+
+/**
+ * This class builds the search index of an objects page, so the page doesn't have to scan and sort all the objects
+ * whenever it's filtered.
+ * The objects are received one at a time in the order of the page data. The index is written as a json object:
+ * <ul>
+ *     <li>"count": the number of objects</li>
+ *     <li>"order": the positions of the objects in the data, sorted by type (objects without type last),
+ *         the objects of a type keep their order in the data. It's the order in which the page shows the objects
+ *         when there is no index (the types are compared like the page's localeCompare)</li>
+ *     <li>"types": the range [start, end) of every type in the order</li>
+ *     <li>"trigrams": every 3 characters sequence of the lowercase names, with the ranks (positions in the order)
+ *         of the objects whose name contains it. The ranks are ascending and every rank is written as the
+ *         difference from the previous one, which keeps the numbers short</li>
+ * </ul>
+ */
+public class ObjectsSearchIndex implements JsonStreamReader.ElementHandler, JSONStreamAware
+{
+    private static final String TYPE = "type";
+    private static final String NAME = "name";
+    private static final int TRIGRAM_LENGTH = 3;
+
+    //The type id and the name of every object, by its position in the data
+    private final IntList typeIds = new IntList();
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> typeToId = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+
+    private int[] order;
+    private final Map<String, IntList> trigrams = new HashMap<>();
+
+    @Override
+    public void element(Object element)
+    {
+        String type = null;
+        String name = null;
+        if (element instanceof JSONObject) {
+            Object typeValue = ((JSONObject) element).get(TYPE);
+            Object nameValue = ((JSONObject) element).get(NAME);
+            type = typeValue == null ? null : typeValue.toString();
+            name = nameValue == null ? null : nameValue.toString();
+        }
+
+        int typeId = -1;
+        if (type != null) {
+            Integer id = typeToId.get(type);
+            if (id == null) {
+                id = types.size();
+                typeToId.put(type, id);
+                types.add(type);
+            }
+            typeId = id;
+        }
+        typeIds.add(typeId);
+        names.add(name);
+    }
+
+    /**
+     * This function sorts the objects and builds the trigrams, it's called once all the objects were received
+     */
+    public void build()
+    {
+        //Sort the types once, every object is placed by the rank of its type
+        List<String> sortedTypes = new ArrayList<>(types);
+        final Collator collator = Collator.getInstance(Locale.ENGLISH);
+        Collections.sort(sortedTypes, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b)
+            {
+                int result = collator.compare(a, b);
+                return result != 0 ? result : a.compareTo(b);
+            }
+        });
+        //The objects without type are ranked last
+        int[] typeRanks = new int[types.size()];
+        for (int rank = 0; rank < sortedTypes.size(); rank++) {
+            typeRanks[typeToId.get(sortedTypes.get(rank))] = rank;
+        }
+
+        //The start of every type in the order, the objects are placed in the order of the data
+        int[] typeStarts = new int[types.size() + 3];
+        for (int position = 0; position < names.size(); position++) {
+            typeStarts[rankOf(typeRanks, position) + 2]++;
+        }
+        for (int rank = 1; rank < typeStarts.length; rank++) {
+            typeStarts[rank] += typeStarts[rank - 1];
+        }
+        order = new int[names.size()];
+        for (int position = 0; position < names.size(); position++) {
+            order[typeStarts[rankOf(typeRanks, position) + 1]++] = position;
+        }
+
+        for (int rank = 0; rank < order.length; rank++) {
+            String name = names.get(order[rank]);
+            if (name != null) {
+                addTrigrams(name.toLowerCase(Locale.ROOT), rank);
+            }
+        }
+    }
+
+    private int rankOf(int[] typeRanks, int position)
+    {
+        int typeId = typeIds.get(position);
+        return typeId == -1 ? typeRanks.length : typeRanks[typeId];
+    }
+
+    private void addTrigrams(String name, int rank)
+    {
+        for (int i = 0; i + TRIGRAM_LENGTH <= name.length(); i++) {
+            String trigram = name.substring(i, i + TRIGRAM_LENGTH);
+            IntList ranks = trigrams.get(trigram);
+            if (ranks == null) {
+                ranks = new IntList();
+                trigrams.put(trigram, ranks);
+            }
+            //A trigram which appears several times in the name is kept once
+            if (ranks.size() == 0 || ranks.get(ranks.size() - 1) != rank) {
+                ranks.add(rank);
+            }
+        }
+    }
+
+    @Override
+    public void writeJSONString(Writer out) throws IOException
+    {
+        out.write("{\"count\":" + order.length + ",\"order\":[");
+        for (int rank = 0; rank < order.length; rank++) {
+            if (rank > 0) {
+                out.write(',');
+            }
+            out.write(Integer.toString(order[rank]));
+        }
+
+        out.write("],\"types\":{");
+        //The objects of a type are adjacent in the order
+        int start = 0;
+        for (int rank = 1; rank <= order.length; rank++) {
+            int typeId = typeIds.get(order[start]);
+            if (rank == order.length || typeIds.get(order[rank]) != typeId) {
+                if (typeId != -1) {
+                    if (start > 0) {
+                        out.write(',');
+                    }
+                    out.write("\"" + JSONValue.escape(types.get(typeId)) + "\":[" + start + "," + rank + "]");
+                }
+                start = rank;
+            }
+        }
+
+        out.write("},\"trigrams\":{");
+        boolean first = true;
+        for (Map.Entry<String, IntList> entry : trigrams.entrySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write("\"" + JSONValue.escape(entry.getKey()) + "\":[");
+            IntList ranks = entry.getValue();
+            int previous = 0;
+            for (int i = 0; i < ranks.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(Integer.toString(ranks.get(i) - previous));
+                previous = ranks.get(i);
+            }
+            out.write(']');
+        }
+        out.write("}}");
+    }
+
+    /**
+     * A growable array of ints, without boxing every value
+     */
+    private static class IntList
+    {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value)
+        {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index)
+        {
+            return values[index];
+        }
+
+        int size()
+        {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.checkpoint.mgmt_api.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * This class compresses a stream into gzip format on several threads, the way pigz does.
+ * The data is split into blocks and every block is compressed into raw deflate data of its own, primed with the last
+ * 32 KB of the previous block as a preset dictionary, so the ratio is close to the ratio of a single thread.
+ * Every block but the last ends with a sync flush, so the compressed blocks are written in order one after the other
+ * as a single gzip member (RFC 1952), which is extracted by gunzip and 'tar xzf' like any other gzip file.
+ */
+public class ParallelGzipOutputStream extends OutputStream
+{
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    //The window of deflate, the part of the previous block which a block may refer to
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    //Gzip member header: magic, deflate method, no flags, no modification time, no extra flags, unknown OS
+    private static final byte[] GZIP_HEADER = new byte[]{0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream out;
+    private final int level;
+    private final ExecutorService executor;
+    //The blocks which are being compressed, in the order they're written
+    private final Queue<Future<byte[]>> pendingBlocks = new LinkedList<>();
+    private final int maxPendingBlocks;
+    //The checksum and length of the uncompressed data, for the trailer of the gzip member
+    private final CRC32 crc = new CRC32();
+    private long totalLength = 0;
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength = 0;
+    //The previous block, its end is the dictionary of the current block
+    private byte[] previousBlock = null;
+    private boolean headerWritten = false;
+    private boolean closed = false;
+
+    /**
+     * @param out the stream to write the compressed data to
+     * @param level the compression level (1-9)
+     * @param threads the number of threads which compress the blocks
+     */
+    public ParallelGzipOutputStream(OutputStream out, int level, int threads)
+    {
+        this.out              = out;
+        this.level            = level;
+        this.executor         = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("gzip-"));
+        //Keep a few blocks per thread waiting, so the threads don't wait for the writer
+        this.maxPendingBlocks = threads * 2;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        block[blockLength++] = (byte) b;
+        if (blockLength == BLOCK_SIZE) {
+            submitBlock(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException
+    {
+        while (length > 0) {
+            int toCopy = Math.min(length, BLOCK_SIZE - blockLength);
+            System.arraycopy(buffer, offset, block, blockLength, toCopy);
+            blockLength += toCopy;
+            offset      += toCopy;
+            length      -= toCopy;
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * This function writes all the blocks that were compressed so far, the last block isn't compressed until it's full
+     * or the stream is closed.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        while (!pendingBlocks.isEmpty()) {
+            writeNextBlock();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            //The last block ends the deflate data, even if it's empty
+            submitBlock(true);
+            while (!pendingBlocks.isEmpty()) {
+                writeNextBlock();
+            }
+            writeIntLittleEndian(out, (int) crc.getValue());
+            writeIntLittleEndian(out, (int) totalLength);
+            out.flush();
+        }
+        finally {
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    /**
+     * This function hands the current block to the compressing threads and starts a new block
+     *
+     * @param last true if it's the last block of the stream
+     * @throws IOException
+     */
+    private void submitBlock(final boolean last) throws IOException
+    {
+        if (pendingBlocks.size() >= maxPendingBlocks) {
+            writeNextBlock();
+        }
+        final byte[] data       = block;
+        final int length        = blockLength;
+        final byte[] dictionary = previousBlock;
+        crc.update(data, 0, length);
+        totalLength += length;
+        pendingBlocks.add(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call()
+            {
+                return compressBlock(data, length, dictionary, last);
+            }
+        }));
+        //Only full blocks are submitted before the last one, so the previous block is always full
+        previousBlock = data;
+        block         = new byte[BLOCK_SIZE];
+        blockLength   = 0;
+    }
+
+    /**
+     * This function waits for the oldest block to be compressed and writes it
+     *
+     * @throws IOException
+     */
+    private void writeNextBlock() throws IOException
+    {
+        try {
+            byte[] compressed = pendingBlocks.remove().get();
+            if (!headerWritten) {
+                out.write(GZIP_HEADER);
+                headerWritten = true;
+            }
+            out.write(compressed);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Failed to compress a block", e.getCause());
+        }
+    }
+
+    /**
+     * This function compresses a given block into raw deflate data
+     *
+     * @param data the block
+     * @param length the length of the data in the block
+     * @param dictionary the previous block, or null if it's the first block
+     * @param last true if it's the last block, its deflate data is finished instead of flushed
+     * @return the compressed block
+     */
+    private byte[] compressBlock(byte[] data, int length, byte[] dictionary, boolean last)
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 16);
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(data, 0, length);
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, count);
+                }
+            }
+            else {
+                //The sync flush ends the block on a byte boundary, so the next block can be appended to it
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+        }
+        finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void writeIntLittleEndian(OutputStream stream, int value) throws IOException
+    {
+        stream.write(value);
+        stream.write(value >>> 8);
+        stream.write(value >>> 16);
+        stream.write(value >>> 24);
+    }
+}
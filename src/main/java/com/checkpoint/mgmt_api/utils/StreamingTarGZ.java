@@ -0,0 +1,98 @@
+package com.checkpoint.mgmt_api.utils;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class builds the tar.gz file while the run is in progress: every file is added to the tar file once it's
+ * complete and then deleted, so the result folder doesn't hold more than the files which are being written.
+ * A file which is written again later (e.g. the page of a layer that is shared by several packages) is added again,
+ * extracting the tar file keeps its last version.
+ */
+public class StreamingTarGZ implements Closeable
+{
+    private final TarArchiveOutputStream tarStream;
+    private final boolean deleteAddedFiles;
+    //The files which were added and kept in the folder, with their modification time when they were added
+    private final Map<String, Long> keptFiles = new HashMap<>();
+    private boolean closed = false;
+
+    /**
+     * @param tarGzPath the tar.gz file
+     * @param compressionLevel the gzip compression level (1-9)
+     * @param compressionThreads the number of threads which compress the file
+     * @param deleteAddedFiles true if a file should be deleted once it's added to the tar file
+     *
+     * @throws IOException in case the tar.gz file couldn't be created
+     */
+    public StreamingTarGZ(String tarGzPath, int compressionLevel, int compressionThreads, boolean deleteAddedFiles)
+            throws IOException
+    {
+        OutputStream fOut  = new FileOutputStream(new File(tarGzPath));
+        OutputStream gzOut = TarGZUtils.createGzipStream(new BufferedOutputStream(fOut), compressionLevel,
+                                                         compressionThreads);
+        tarStream = new TarArchiveOutputStream(gzOut);
+        tarStream.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+        this.deleteAddedFiles = deleteAddedFiles;
+    }
+
+    /**
+     * This function adds a complete file to the tar file
+     *
+     * @param fileName the file
+     * @throws IOException in case the file couldn't be added
+     */
+    public synchronized void addFile(String fileName) throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        File file = new File(fileName);
+        TarGZUtils.addFileToTarGz(tarStream, file);
+        if (deleteAddedFiles) {
+            file.delete();
+        }
+        else {
+            keptFiles.put(file.getName(), file.lastModified());
+        }
+    }
+
+    /**
+     * This function adds the files of a given directory which weren't added yet (e.g. the log file) and closes the
+     * tar file.
+     *
+     * @param dirPath the directory
+     * @param deleteTempDir true if the directory should be deleted once it's packed
+     *
+     * @throws IOException in case the files couldn't be added
+     */
+    public synchronized void finish(String dirPath, boolean deleteTempDir) throws IOException
+    {
+        File[] children = new File(dirPath).listFiles();
+        if (children != null) {
+            for (File child : children) {
+                Long addedModificationTime = keptFiles.get(child.getName());
+                if (addedModificationTime == null || addedModificationTime != child.lastModified()) {
+                    TarGZUtils.addFileToTarGz(tarStream, child);
+                }
+            }
+        }
+        close();
+        if (deleteTempDir) {
+            TarGZUtils.deleteTempFolder(dirPath);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        tarStream.close();
+    }
+}
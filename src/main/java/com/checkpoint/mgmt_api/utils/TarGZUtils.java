@@ -3,21 +3,44 @@ package com.checkpoint.mgmt_api.utils;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
 import org.apache.commons.compress.utils.IOUtils;
 
 import java.io.*;
+import java.util.zip.Deflater;
 
 /**
  * This class creates the tar.gz file, containing all of the html and json files.
  */
 public class TarGZUtils
 {
+    //The level zlib uses by default
+    private static final int DEFAULT_PARALLEL_LEVEL = 6;
+
     public static void createTarGZ(String dirPath, String tarGzPath, boolean deleteTempDir) throws IOException {
 
+        createTarGZ(dirPath, tarGzPath, deleteTempDir, Deflater.DEFAULT_COMPRESSION, 1);
+    }
+
+    /**
+     * This function creates the tar.gz file of a given directory
+     *
+     * @param dirPath the directory
+     * @param tarGzPath the tar.gz file
+     * @param deleteTempDir true if the directory should be deleted once it's packed
+     * @param compressionLevel the gzip compression level (1-9, or -1 for the default level)
+     * @param compressionThreads the number of threads which compress the file. If more than one, the file is compressed
+     *                           in blocks on several threads (see {@link ParallelGzipOutputStream}).
+     *
+     * @throws IOException
+     */
+    public static void createTarGZ(String dirPath, String tarGzPath, boolean deleteTempDir, int compressionLevel,
+                                   int compressionThreads) throws IOException {
+
         try (
                 OutputStream fOut  = new FileOutputStream(new File(tarGzPath));
                 OutputStream bOut  = new BufferedOutputStream(fOut);
-                OutputStream gzOut = new GzipCompressorOutputStream(bOut);
+                OutputStream gzOut = createGzipStream(bOut, compressionLevel, compressionThreads);
                 TarArchiveOutputStream tOut  = new TarArchiveOutputStream(gzOut)
         )
         {
@@ -40,6 +63,28 @@ public class TarGZUtils
         }
     }
 
+    /**
+     * This function creates the stream which compresses the tar file
+     *
+     * @param out the stream of the tar.gz file
+     * @param compressionLevel the gzip compression level
+     * @param compressionThreads the number of threads which compress the file
+     *
+     * @return the stream
+     * @throws IOException
+     */
+    static OutputStream createGzipStream(OutputStream out, int compressionLevel, int compressionThreads)
+            throws IOException
+    {
+        if (compressionThreads > 1) {
+            int level = compressionLevel == Deflater.DEFAULT_COMPRESSION ? DEFAULT_PARALLEL_LEVEL : compressionLevel;
+            return new ParallelGzipOutputStream(out, level, compressionThreads);
+        }
+        GzipParameters parameters = new GzipParameters();
+        parameters.setCompressionLevel(compressionLevel);
+        return new GzipCompressorOutputStream(out, parameters);
+    }
+
     /**
      * This function copies a given file to the zip file
      *
@@ -48,7 +93,7 @@ public class TarGZUtils
      *
      * @throws IOException
      */
-    private static void addFileToTarGz(TarArchiveOutputStream tarArchiveOutputStream, File file)
+    static void addFileToTarGz(TarArchiveOutputStream tarArchiveOutputStream, File file)
                                             throws IOException
     {
         String entryName =  file.getName();
@@ -73,7 +118,7 @@ public class TarGZUtils
      *
      * @param dirPath the directory path
      */
-    private static void deleteTempFolder(String dirPath){
+    static void deleteTempFolder(String dirPath){
 
         File f = new File(dirPath);
         if (f.isDirectory()) {
@@ -0,0 +1,333 @@
+package com.checkpoint.mgmt_api.utils;
+
+import org.json.simple.JSONStreamAware;
+import org.json.simple.JSONValue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class maps the uids of objects to their names, with a small memory footprint.
+ * A uid is kept as two longs in an open addressing table instead of a 36 characters string, and every distinct name
+ * is kept once as UTF-8 bytes in a shared arena. Uids which aren't in the standard lowercase UUID format are kept
+ * in a regular map.
+ * The dictionary is written as a json object ({"uid" : "name", ...}).
+ */
+public class UidDictionary implements JSONStreamAware
+{
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int UUID_LENGTH = 36;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    //The uids table: both halves of the uid and the id of its name plus one (0 marks an empty slot)
+    private long[] mostSignificantBits  = new long[INITIAL_CAPACITY];
+    private long[] leastSignificantBits = new long[INITIAL_CAPACITY];
+    private int[] uidNameIds            = new int[INITIAL_CAPACITY];
+    private int uidsCount = 0;
+
+    //The names arena: the UTF-8 bytes of the names, and the offset and length of every name in it
+    private byte[] arena     = new byte[16 * INITIAL_CAPACITY];
+    private int arenaLength  = 0;
+    private int[] nameOffsets = new int[INITIAL_CAPACITY];
+    private int[] nameLengths = new int[INITIAL_CAPACITY];
+    private int namesCount    = 0;
+    //The names table, used to keep every name once: the id of the name plus one (0 marks an empty slot)
+    private int[] nameSlots   = new int[INITIAL_CAPACITY];
+
+    //The uids which aren't in the UUID format
+    private final Map<String, String> otherUids = new HashMap<>();
+
+    /**
+     * This function maps a given uid to a given name, replacing the previous name of the uid (if any)
+     *
+     * @param uid the uid
+     * @param name the name
+     */
+    public synchronized void put(String uid, String name)
+    {
+        if (!UidUtils.isUid(uid)) {
+            otherUids.put(uid, name);
+            return;
+        }
+        long mostSignificant  = parseHex(uid, 0, 8) << 32 | parseHex(uid, 9, 13) << 16 | parseHex(uid, 14, 18);
+        long leastSignificant = parseHex(uid, 19, 23) << 48 | parseHex(uid, 24, 36);
+        int nameId = internName(name);
+
+        int slot = findUidSlot(mostSignificant, leastSignificant);
+        if (uidNameIds[slot] == 0) {
+            mostSignificantBits[slot]  = mostSignificant;
+            leastSignificantBits[slot] = leastSignificant;
+            uidsCount++;
+        }
+        uidNameIds[slot] = nameId + 1;
+
+        if (uidsCount * 4 > uidNameIds.length * 3) {
+            growUids();
+        }
+    }
+
+    /**
+     * @param uid the uid
+     * @return the name of the uid, or null if the uid isn't in the dictionary
+     */
+    public synchronized String get(String uid)
+    {
+        if (!UidUtils.isUid(uid)) {
+            return otherUids.get(uid);
+        }
+        int slot = findUidSlot(uid);
+        return uidNameIds[slot] == 0 ? null : getName(uidNameIds[slot] - 1);
+    }
+
+    /**
+     * @param uid the uid
+     * @return true if the uid is in the dictionary
+     */
+    public synchronized boolean containsKey(String uid)
+    {
+        if (!UidUtils.isUid(uid)) {
+            return otherUids.containsKey(uid);
+        }
+        return uidNameIds[findUidSlot(uid)] != 0;
+    }
+
+    /**
+     * @return the number of uids in the dictionary
+     */
+    public synchronized int size()
+    {
+        return uidsCount + otherUids.size();
+    }
+
+    @Override
+    public synchronized void writeJSONString(Writer out) throws IOException
+    {
+        char[] uid = new char[UUID_LENGTH];
+        boolean first = true;
+        out.write('{');
+        for (int slot = 0; slot < uidNameIds.length; slot++) {
+            if (uidNameIds[slot] != 0) {
+                formatUuid(mostSignificantBits[slot], leastSignificantBits[slot], uid);
+                writeEntry(out, new String(uid), getName(uidNameIds[slot] - 1), first);
+                first = false;
+            }
+        }
+        writeOtherUids(out, first);
+    }
+
+    /**
+     * This function returns a view of the dictionary which is written as json with the given uids only.
+     * The uids which aren't in the UUID format are always written, there are few of them and they aren't always
+     * recognized as uids.
+     *
+     * @param uids the uids to write
+     * @return the view
+     */
+    public JSONStreamAware subset(final Collection<String> uids)
+    {
+        return new JSONStreamAware() {
+            @Override
+            public void writeJSONString(Writer out) throws IOException
+            {
+                synchronized (UidDictionary.this) {
+                    boolean first = true;
+                    out.write('{');
+                    for (String uid : uids) {
+                        if (UidUtils.isUid(uid)) {
+                            int slot = findUidSlot(uid);
+                            if (uidNameIds[slot] != 0) {
+                                writeEntry(out, uid, getName(uidNameIds[slot] - 1), first);
+                                first = false;
+                            }
+                        }
+                    }
+                    writeOtherUids(out, first);
+                }
+            }
+        };
+    }
+
+    private void writeOtherUids(Writer out, boolean first) throws IOException
+    {
+        for (Map.Entry<String, String> entry : otherUids.entrySet()) {
+            writeEntry(out, entry.getKey(), entry.getValue(), first);
+            first = false;
+        }
+        out.write('}');
+    }
+
+    private static void writeEntry(Writer out, String uid, String name, boolean first) throws IOException
+    {
+        if (!first) {
+            out.write(',');
+        }
+        out.write('"');
+        out.write(JSONValue.escape(uid));
+        out.write("\":");
+        out.write(JSONValue.toJSONString(name));
+    }
+
+    private int findUidSlot(String uid)
+    {
+        return findUidSlot(parseHex(uid, 0, 8) << 32 | parseHex(uid, 9, 13) << 16 | parseHex(uid, 14, 18),
+                           parseHex(uid, 19, 23) << 48 | parseHex(uid, 24, 36));
+    }
+
+    /**
+     * This function returns the slot of a given uid, or the empty slot where the uid should be placed
+     */
+    private int findUidSlot(long mostSignificant, long leastSignificant)
+    {
+        int mask = uidNameIds.length - 1;
+        int slot = mix(mostSignificant ^ leastSignificant) & mask;
+        while (uidNameIds[slot] != 0
+                && (mostSignificantBits[slot] != mostSignificant || leastSignificantBits[slot] != leastSignificant)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growUids()
+    {
+        long[] oldMostSignificantBits  = mostSignificantBits;
+        long[] oldLeastSignificantBits = leastSignificantBits;
+        int[] oldUidNameIds            = uidNameIds;
+
+        int capacity = oldUidNameIds.length * 2;
+        mostSignificantBits  = new long[capacity];
+        leastSignificantBits = new long[capacity];
+        uidNameIds           = new int[capacity];
+        for (int oldSlot = 0; oldSlot < oldUidNameIds.length; oldSlot++) {
+            if (oldUidNameIds[oldSlot] != 0) {
+                int slot = findUidSlot(oldMostSignificantBits[oldSlot], oldLeastSignificantBits[oldSlot]);
+                mostSignificantBits[slot]  = oldMostSignificantBits[oldSlot];
+                leastSignificantBits[slot] = oldLeastSignificantBits[oldSlot];
+                uidNameIds[slot]           = oldUidNameIds[oldSlot];
+            }
+        }
+    }
+
+    /**
+     * This function returns the id of a given name, the name is added to the arena if it isn't there yet
+     */
+    private int internName(String name)
+    {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int mask = nameSlots.length - 1;
+        int slot = hashBytes(bytes) & mask;
+        while (nameSlots[slot] != 0) {
+            int nameId = nameSlots[slot] - 1;
+            if (nameEquals(nameId, bytes)) {
+                return nameId;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (arenaLength + bytes.length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + bytes.length));
+        }
+        System.arraycopy(bytes, 0, arena, arenaLength, bytes.length);
+        if (namesCount == nameOffsets.length) {
+            nameOffsets = Arrays.copyOf(nameOffsets, namesCount * 2);
+            nameLengths = Arrays.copyOf(nameLengths, namesCount * 2);
+        }
+        int nameId = namesCount++;
+        nameOffsets[nameId] = arenaLength;
+        nameLengths[nameId] = bytes.length;
+        arenaLength += bytes.length;
+        nameSlots[slot] = nameId + 1;
+
+        if (namesCount * 4 > nameSlots.length * 3) {
+            growNames();
+        }
+        return nameId;
+    }
+
+    private void growNames()
+    {
+        nameSlots = new int[nameSlots.length * 2];
+        int mask = nameSlots.length - 1;
+        for (int nameId = 0; nameId < namesCount; nameId++) {
+            int slot = hashBytes(arena, nameOffsets[nameId], nameLengths[nameId]) & mask;
+            while (nameSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            nameSlots[slot] = nameId + 1;
+        }
+    }
+
+    private boolean nameEquals(int nameId, byte[] bytes)
+    {
+        if (nameLengths[nameId] != bytes.length) {
+            return false;
+        }
+        int offset = nameOffsets[nameId];
+        for (int i = 0; i < bytes.length; i++) {
+            if (arena[offset + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getName(int nameId)
+    {
+        return new String(arena, nameOffsets[nameId], nameLengths[nameId], StandardCharsets.UTF_8);
+    }
+
+    private static int hashBytes(byte[] bytes)
+    {
+        return hashBytes(bytes, 0, bytes.length);
+    }
+
+    private static int hashBytes(byte[] bytes, int offset, int length)
+    {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return mix(hash);
+    }
+
+    private static int mix(long value)
+    {
+        value *= 0x9E3779B97F4A7C15L;
+        return (int) (value ^ (value >>> 32));
+    }
+
+    private static long parseHex(String value, int start, int end)
+    {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            result = result << 4 | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return result;
+    }
+
+    private static void formatUuid(long mostSignificant, long leastSignificant, char[] uid)
+    {
+        formatHex(mostSignificant >>> 32, uid, 0, 8);
+        uid[8] = '-';
+        formatHex(mostSignificant >>> 16, uid, 9, 4);
+        uid[13] = '-';
+        formatHex(mostSignificant, uid, 14, 4);
+        uid[18] = '-';
+        formatHex(leastSignificant >>> 48, uid, 19, 4);
+        uid[23] = '-';
+        formatHex(leastSignificant, uid, 24, 12);
+    }
+
+    private static void formatHex(long value, char[] buffer, int offset, int digits)
+    {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+}
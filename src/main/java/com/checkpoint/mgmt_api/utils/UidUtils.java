@@ -0,0 +1,64 @@
+package com.checkpoint.mgmt_api.utils;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Utility class for the uids of the management objects.
+ */
+public class UidUtils {
+
+    private static final int UID_LENGTH = 36;
+
+    /**
+     * Checks whether a given string has the format of a uid (8-4-4-4-12 lowercase hex digits), the format of the
+     * uids which the management server returns.
+     *
+     * @param value the string to check
+     * @return true if the string is a uid
+     */
+    public static boolean isUid(String value) {
+        if (value == null || value.length() != UID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < UID_LENGTH; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            }
+            else if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects all the uids which appear as values in a given json value (in any field and in any depth).
+     *
+     * @param value json object/array/string
+     * @param uids the collection that the function fills
+     */
+    public static void collectUids(Object value, Collection<String> uids) {
+        if (value instanceof String) {
+            if (isUid((String) value)) {
+                uids.add((String) value);
+            }
+        }
+        else if (value instanceof JSONObject) {
+            for (Object entry : ((JSONObject) value).entrySet()) {
+                collectUids(((Map.Entry) entry).getValue(), uids);
+            }
+        }
+        else if (value instanceof JSONArray) {
+            for (Object item : (JSONArray) value) {
+                collectUids(item, uids);
+            }
+        }
+    }
+}